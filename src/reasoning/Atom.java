@@ -12,6 +12,7 @@ public class Atom implements LogicExpression {
 
 	private String name;
 	private int negations;
+	private int id;
 
 	/**
 	 * Create a new atom with no negations
@@ -19,8 +20,7 @@ public class Atom implements LogicExpression {
 	 */
 	
 	public Atom(String name) {
-		this.name = name;
-		this.negations = 0;
+		this(name, 0);
 	}
 
 	/**
@@ -32,6 +32,7 @@ public class Atom implements LogicExpression {
 	public Atom(String name, int negations) {
 		this.name = name;
 		this.negations = negations;
+		this.id = -1;
 	}
 
 	public String toString() {
@@ -79,6 +80,24 @@ public class Atom implements LogicExpression {
 		return null;
 	}
 
+	/**
+	 * Get the id given to this atom by the expression factory
+	 * @return the id, or -1 if the atom was not made by the factory
+	 */
+	
+	int getId() {
+		return id;
+	}
+	
+	/**
+	 * Set the id of this atom
+	 * @param id the id given by the expression factory
+	 */
+	
+	void setId(int id) {
+		this.id = id;
+	}
+
 	@Override
 	public int hashCode() {
 		return negations + name.hashCode();
@@ -107,7 +126,7 @@ public class Atom implements LogicExpression {
 		terms.add(term);
 		terms.add(this);
 		
-		return new Construction(terms, terminal);
+		return ExpressionFactory.construction(terms, terminal);
 	}
 	
 	@Override
@@ -117,7 +136,7 @@ public class Atom implements LogicExpression {
 		terms.add(this);
 		terms.add(term);
 		
-		return new Construction(terms, terminal);
+		return ExpressionFactory.construction(terms, terminal);
 	}
 
 	@Override
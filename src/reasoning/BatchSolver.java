@@ -0,0 +1,345 @@
+package reasoning;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Finds out whether each of many input files is satisfiable, solving several
+ * files at once in the same JVM. Every file is read, parsed, converted and
+ * solved with its own variable table and clause arena, and a failure only
+ * affects its own file. Expressions are still made by the shared expression
+ * factory, which is cleared between files whenever it has grown too large,
+ * and each thread transforms them with its own cache. Files are solved on
+ * virtual threads where the JVM has them and on a fixed pool of threads
+ * otherwise, with at most a given number solved at once. One line is written
+ * per file, in the order the files were given
+ *
+ * @author George Kaye
+ *
+ */
+
+public class BatchSolver {
+
+	/**
+	 * The most expressions the factory may hold before it is cleared
+	 */
+
+	public static final int FACTORY_LIMIT = 1 << 20;
+
+	private String format;
+	private int limit;
+	private Function<LogicExpression, ClauseNormalForm> encoding;
+	private BiFunction<ClauseArena, VariableTable, LogicModel> solver;
+
+	private String[] lines;
+	private int written;
+	private int satisfiable;
+	private int unsatisfiable;
+	private int errors;
+
+	/**
+	 * Create a new batch solver
+	 *
+	 * @param format
+	 *            the format of files not given one in a manifest: -exp, -set or
+	 *            -dimacs
+	 * @param limit
+	 *            the greatest number of files solved at once
+	 * @param encoding
+	 *            converts parsed expressions into clause normal form
+	 * @param solver
+	 *            finds a model of a clause arena, or null if there is not one
+	 */
+
+	public BatchSolver(String format, int limit, Function<LogicExpression, ClauseNormalForm> encoding,
+			BiFunction<ClauseArena, VariableTable, LogicModel> solver) {
+		this.format = format;
+		this.limit = limit;
+		this.encoding = encoding;
+		this.solver = solver;
+	}
+
+	/**
+	 * Solve every file in a directory, or every file listed in a manifest. A
+	 * manifest has one file per line, relative to the manifest, optionally
+	 * followed by its format; blank lines and lines starting with # are
+	 * ignored
+	 *
+	 * @param path
+	 *            the directory or manifest
+	 * @param out
+	 *            where to write the result lines
+	 * @throws IOException
+	 *             if the directory or manifest cannot be read
+	 */
+
+	public void solve(Path path, PrintStream out) throws IOException {
+
+		ArrayList<Path> files = new ArrayList<>();
+		ArrayList<String> formats = new ArrayList<>();
+
+		if (Files.isDirectory(path)) {
+
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+				for (Path entry : entries) {
+					if (Files.isRegularFile(entry)) {
+						files.add(entry);
+					}
+				}
+			}
+
+			Collections.sort(files);
+
+			for (int i = 0; i < files.size(); i++) {
+				formats.add(format);
+			}
+
+		} else {
+
+			for (String line : Files.readAllLines(path)) {
+
+				line = line.trim();
+
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				String[] fields = line.split("\\s+");
+
+				files.add(path.resolveSibling(fields[0]));
+				formats.add(fields.length > 1 ? fields[1] : format);
+			}
+		}
+
+		solve(files, formats, out);
+	}
+
+	/**
+	 * Solve a list of files
+	 *
+	 * @param files
+	 *            the files
+	 * @param formats
+	 *            the format of each file
+	 * @param out
+	 *            where to write the result lines
+	 */
+
+	public void solve(ArrayList<Path> files, ArrayList<String> formats, PrintStream out) {
+
+		lines = new String[files.size()];
+		written = 0;
+
+		ExecutorService executor = createExecutor(limit);
+		Semaphore permits = new Semaphore(limit);
+
+		try {
+
+			for (int i = 0; i < files.size(); i++) {
+
+				int index = i;
+				Path file = files.get(i);
+				String fileFormat = formats.get(i);
+
+				if (ExpressionFactory.size() > FACTORY_LIMIT) {
+
+					// wait until no file is using the factory before clearing it
+					permits.acquire(limit);
+					ExpressionFactory.clear();
+					permits.release(limit);
+				}
+
+				permits.acquire();
+
+				executor.execute(() -> {
+					try {
+						finish(index, file + ": " + solve(file, fileFormat), out);
+					} finally {
+						permits.release();
+					}
+				});
+			}
+
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving files", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Solve a single file
+	 *
+	 * @param file
+	 *            the file
+	 * @param fileFormat
+	 *            the format of the file
+	 * @return the result, and the time taken to find it
+	 */
+
+	private String solve(Path file, String fileFormat) {
+
+		long start = System.nanoTime();
+
+		try {
+
+			VariableTable table = new VariableTable();
+			ClauseArena arena;
+
+			if (fileFormat.equals("-dimacs")) {
+
+				try (ReadableByteChannel channel = CompressedInput.open(file)) {
+					arena = new DimacsReader(channel).read(table);
+				}
+
+			} else if (fileFormat.equals("-exp") || fileFormat.equals("-set")) {
+
+				String input;
+
+				try (BufferedReader reader = Files.newBufferedReader(file)) {
+					input = reader.readLine();
+				}
+
+				if (input == null) {
+					throw new IOException("Empty file");
+				}
+
+				LogicExpression exp = ExpressionParser.parseExpression(input, fileFormat.equals("-set"), false);
+				ClauseNormalForm cnf = encoding.apply(exp);
+
+				table = new VariableTable(cnf);
+				arena = ClauseArena.fromClauseNormalForm(cnf, table);
+
+			} else {
+				return count(null, "ERROR Unknown format " + fileFormat);
+			}
+
+			Result result = solver.apply(arena, table) == null ? Result.UNSATISFIABLE : Result.SATISFIABLE;
+			long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			return count(result, result + " (" + time + " ms)");
+
+		} catch (NoSuchFileException e) {
+			return count(null, "ERROR File not found");
+		} catch (IOException | RuntimeException | StackOverflowError e) {
+			return count(null, "ERROR " + (e.getMessage() == null ? e.toString() : e.getMessage()));
+		}
+	}
+
+	/**
+	 * Count a result
+	 *
+	 * @param result
+	 *            the result, or null for an error
+	 * @param line
+	 *            the result line
+	 * @return the result line
+	 */
+
+	private synchronized String count(Result result, String line) {
+
+		if (result == Result.SATISFIABLE) {
+			satisfiable++;
+		} else if (result == Result.UNSATISFIABLE) {
+			unsatisfiable++;
+		} else {
+			errors++;
+		}
+
+		return line;
+	}
+
+	/**
+	 * Record the result line of a file, writing every line that is now ready
+	 * so that lines appear in the order the files were given
+	 *
+	 * @param index
+	 *            the position of the file
+	 * @param line
+	 *            the result line
+	 * @param out
+	 *            where to write the result lines
+	 */
+
+	private synchronized void finish(int index, String line, PrintStream out) {
+
+		lines[index] = line;
+
+		while (written < lines.length && lines[written] != null) {
+			out.println(lines[written]);
+			lines[written] = null;
+			written++;
+		}
+	}
+
+	/**
+	 * Create an executor running each task on a new virtual thread, or on a
+	 * fixed pool of threads if the JVM has no virtual threads
+	 *
+	 * @param threads
+	 *            the size of the fixed pool
+	 * @return the executor
+	 */
+
+	private static ExecutorService createExecutor(int threads) {
+
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "batch");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Get the number of files found satisfiable
+	 *
+	 * @return the number of satisfiable files
+	 */
+
+	public synchronized int getSatisfiable() {
+		return satisfiable;
+	}
+
+	/**
+	 * Get the number of files found unsatisfiable
+	 *
+	 * @return the number of unsatisfiable files
+	 */
+
+	public synchronized int getUnsatisfiable() {
+		return unsatisfiable;
+	}
+
+	/**
+	 * Get the number of files that could not be solved
+	 *
+	 * @return the number of errors
+	 */
+
+	public synchronized int getErrors() {
+		return errors;
+	}
+
+}
@@ -0,0 +1,56 @@
+package reasoning;
+
+/**
+ * An interface for the heuristics a CDCL solver uses to choose which variable
+ * to decide on next
+ * 
+ * @author George Kaye
+ *
+ */
+
+public interface BranchingHeuristic {
+
+	/**
+	 * Prepare the heuristic for a number of variables
+	 * 
+	 * @param variables
+	 *            the number of variables
+	 */
+
+	public void initialise(int variables);
+
+	/**
+	 * Choose the next variable to decide on
+	 * 
+	 * @param solver
+	 *            the solver to check assignments with
+	 * @return the variable, or -1 if every variable is assigned
+	 */
+
+	public int pickBranchVariable(CDCLSolver solver);
+
+	/**
+	 * Notify the heuristic that a variable took part in a conflict
+	 * 
+	 * @param variable
+	 *            the variable
+	 */
+
+	public void bump(int variable);
+
+	/**
+	 * Notify the heuristic that a conflict has been analysed
+	 */
+
+	public void conflict();
+
+	/**
+	 * Notify the heuristic that a variable has been unassigned by backtracking
+	 * 
+	 * @param variable
+	 *            the variable
+	 */
+
+	public void unassign(int variable);
+
+}
@@ -0,0 +1,859 @@
+package reasoning;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+/**
+ * An iterative conflict-driven clause learning SAT solver. Assignments are
+ * kept on a trail split into decision levels; every conflict is analysed to
+ * the first unique implication point, the resulting clause is learned and the
+ * search jumps back to the second highest level in that clause
+ *
+ * @author George Kaye
+ *
+ */
+
+public class CDCLSolver {
+
+	private static final int NO_REASON = -1;
+
+	private static final byte TRUE = 1;
+	private static final byte FALSE = -1;
+	private static final byte UNASSIGNED = 0;
+
+	private ClauseArena arena;
+	private VariableTable table;
+	private int variables;
+
+	private byte[] values;
+	private int[] levels;
+	private int[] reasons;
+	private boolean[] seen;
+	private boolean[] marks;
+
+	private IntList trail;
+	private IntList trailLimits;
+	private int propagationHead;
+
+	private IntList[] watches;
+	private boolean unsatisfiable;
+
+	private BranchingHeuristic heuristic;
+	private boolean[] phases;
+	private boolean phaseSaving;
+
+	private RestartPolicy restartPolicy;
+	private LearnedClauseManager learnts;
+	private int[] levelStamps;
+	private int stamp;
+
+	private long conflicts;
+	private long decisions;
+	private long propagations;
+	private long restarts;
+
+	private ClauseExchange exchange;
+	private int exchangeId;
+	private long importPosition;
+	private long exported;
+	private long imported;
+
+	/**
+	 * Create a new solver for a clause normal form
+	 *
+	 * @param cnf
+	 *            the clause normal form
+	 */
+
+	public CDCLSolver(ClauseNormalForm cnf) {
+		this(new VariableTable(cnf), cnf);
+	}
+
+	private CDCLSolver(VariableTable table, ClauseNormalForm cnf) {
+		this(ClauseArena.fromClauseNormalForm(cnf, table), table);
+	}
+
+	/**
+	 * Create a new solver for the clauses in a clause arena. The solver adds
+	 * learned clauses to the arena
+	 *
+	 * @param arena
+	 *            the clause arena
+	 * @param table
+	 *            the table the literals were interned in
+	 */
+
+	public CDCLSolver(ClauseArena arena, VariableTable table) {
+
+		this.arena = arena;
+		this.table = table;
+		this.variables = table.size();
+
+		this.values = new byte[variables];
+		this.levels = new int[variables];
+		this.reasons = new int[variables];
+		this.seen = new boolean[variables];
+		this.marks = new boolean[2 * variables];
+
+		this.trail = new IntList(Math.max(variables, 1));
+		this.trailLimits = new IntList();
+		this.propagationHead = 0;
+
+		this.watches = new IntList[2 * variables];
+
+		for (int i = 0; i < watches.length; i++) {
+			watches[i] = new IntList();
+		}
+
+		this.unsatisfiable = false;
+
+		this.phases = new boolean[variables];
+		setPhase(true, false);
+		setHeuristic(new VSIDSHeuristic());
+
+		this.restartPolicy = new LubyRestarts();
+		this.learnts = new LearnedClauseManager(arena);
+		this.levelStamps = new int[variables + 1];
+		this.stamp = 0;
+
+		int end = arena.end();
+
+		for (int offset = arena.first(); offset < end; offset = arena.next(offset)) {
+			if (!arena.hasFlag(offset, ClauseArena.DELETED)) {
+				addInitialClause(offset);
+			}
+		}
+	}
+
+	/**
+	 * Add one of the clauses of the problem, removing duplicate literals and
+	 * tautologies
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 */
+
+	private void addInitialClause(int offset) {
+
+		int size = arena.size(offset);
+		int[] literals = new int[size];
+		int length = 0;
+		boolean tautology = false;
+
+		for (int i = 0; i < size; i++) {
+
+			int literal = arena.literal(offset, i);
+
+			if (marks[Literal.negate(literal)]) {
+				tautology = true;
+			} else if (!marks[literal]) {
+				marks[literal] = true;
+				literals[length] = literal;
+				length++;
+			}
+		}
+
+		for (int i = 0; i < length; i++) {
+			marks[literals[i]] = false;
+		}
+
+		if (tautology || length != size) {
+
+			arena.delete(offset);
+
+			if (tautology) {
+				return;
+			}
+
+			offset = arena.addClause(literals, 0, length, 0);
+		}
+
+		if (length == 0) {
+			unsatisfiable = true;
+		} else if (length == 1) {
+			if (!enqueue(literals[0], NO_REASON)) {
+				unsatisfiable = true;
+			}
+		} else {
+			attach(offset);
+		}
+	}
+
+	/**
+	 * Start watching the first two literals of a clause
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 */
+
+	private void attach(int offset) {
+		watches[arena.literal(offset, 0)].add(offset);
+		watches[arena.literal(offset, 1)].add(offset);
+	}
+
+	/**
+	 * Get the value of a literal under the current assignment
+	 *
+	 * @param literal
+	 *            the literal
+	 * @return TRUE, FALSE or UNASSIGNED
+	 */
+
+	private byte value(int literal) {
+
+		byte value = values[Literal.variable(literal)];
+
+		if (Literal.isNegated(literal)) {
+			return (byte) -value;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Make a literal true at the current decision level
+	 *
+	 * @param literal
+	 *            the literal
+	 * @param reason
+	 *            the clause that implied the literal, NO_REASON for decisions
+	 * @return false if the literal is already false
+	 */
+
+	private boolean enqueue(int literal, int reason) {
+
+		byte value = value(literal);
+
+		if (value != UNASSIGNED) {
+			return value == TRUE;
+		}
+
+		int variable = Literal.variable(literal);
+
+		values[variable] = Literal.isNegated(literal) ? FALSE : TRUE;
+		levels[variable] = decisionLevel();
+		reasons[variable] = reason;
+		trail.add(literal);
+
+		return true;
+	}
+
+	/**
+	 * Get the current decision level
+	 *
+	 * @return the decision level
+	 */
+
+	private int decisionLevel() {
+		return trailLimits.size();
+	}
+
+	/**
+	 * Propagate every literal on the trail that has not been propagated yet.
+	 * Every clause watches its first two literals, so making a literal true
+	 * only visits the clauses watching its complement
+	 *
+	 * @return the offset of a conflicting clause, or NO_REASON if there is no
+	 *         conflict
+	 */
+
+	private int propagate() {
+
+		while (propagationHead < trail.size()) {
+
+			int falsified = Literal.negate(trail.get(propagationHead));
+			propagationHead++;
+			propagations++;
+
+			IntList watchers = watches[falsified];
+			int i = 0;
+			int j = 0;
+
+			while (i < watchers.size()) {
+
+				int offset = watchers.get(i);
+				i++;
+
+				// keep the falsified literal in the second position
+				if (arena.literal(offset, 0) == falsified) {
+					arena.setLiteral(offset, 0, arena.literal(offset, 1));
+					arena.setLiteral(offset, 1, falsified);
+				}
+
+				int first = arena.literal(offset, 0);
+
+				if (value(first) == TRUE) {
+					watchers.set(j, offset);
+					j++;
+					continue;
+				}
+
+				// look for another literal to watch
+				int size = arena.size(offset);
+				boolean moved = false;
+
+				for (int k = 2; k < size; k++) {
+
+					int literal = arena.literal(offset, k);
+
+					if (value(literal) != FALSE) {
+						arena.setLiteral(offset, 1, literal);
+						arena.setLiteral(offset, k, falsified);
+						watches[literal].add(offset);
+						moved = true;
+						break;
+					}
+				}
+
+				if (moved) {
+					continue;
+				}
+
+				watchers.set(j, offset);
+				j++;
+
+				if (value(first) == FALSE) {
+
+					// conflict, keep the remaining watchers and stop
+					while (i < watchers.size()) {
+						watchers.set(j, watchers.get(i));
+						i++;
+						j++;
+					}
+
+					watchers.shrink(j);
+					propagationHead = trail.size();
+
+					return offset;
+				}
+
+				enqueue(first, offset);
+			}
+
+			watchers.shrink(j);
+		}
+
+		return NO_REASON;
+	}
+
+	/**
+	 * Analyse a conflict, finding a clause asserting the negation of the first
+	 * unique implication point
+	 *
+	 * @param conflict
+	 *            the offset of the conflicting clause
+	 * @param learnt
+	 *            the list to put the learned clause into, the asserting literal
+	 *            is first and a literal of the backjump level is second
+	 * @return the level to backjump to
+	 */
+
+	private int analyze(int conflict, IntList learnt) {
+
+		int pathCount = 0;
+		int implied = Literal.UNDEFINED;
+		int index = trail.size() - 1;
+		int clause = conflict;
+
+		learnt.clear();
+		learnt.add(Literal.UNDEFINED);
+
+		do {
+
+			if (arena.hasFlag(clause, ClauseArena.LEARNT)) {
+				learnts.bump(clause);
+			}
+
+			int size = arena.size(clause);
+
+			for (int j = 0; j < size; j++) {
+
+				int literal = arena.literal(clause, j);
+				int variable = Literal.variable(literal);
+
+				if (implied != Literal.UNDEFINED && variable == Literal.variable(implied)) {
+					continue;
+				}
+
+				if (!seen[variable] && levels[variable] > 0) {
+
+					seen[variable] = true;
+					heuristic.bump(variable);
+
+					if (levels[variable] >= decisionLevel()) {
+						pathCount++;
+					} else {
+						learnt.add(literal);
+					}
+				}
+			}
+
+			// find the next literal on the trail involved in the conflict
+			while (!seen[Literal.variable(trail.get(index))]) {
+				index--;
+			}
+
+			implied = trail.get(index);
+			index--;
+
+			clause = reasons[Literal.variable(implied)];
+			seen[Literal.variable(implied)] = false;
+			pathCount--;
+
+		} while (pathCount > 0);
+
+		learnt.set(0, Literal.negate(implied));
+
+		int backjump = 0;
+
+		for (int i = 1; i < learnt.size(); i++) {
+
+			int variable = Literal.variable(learnt.get(i));
+			seen[variable] = false;
+
+			if (levels[variable] > backjump) {
+
+				backjump = levels[variable];
+
+				int swap = learnt.get(1);
+				learnt.set(1, learnt.get(i));
+				learnt.set(i, swap);
+			}
+		}
+
+		return backjump;
+	}
+
+	/**
+	 * Undo every assignment above a decision level
+	 *
+	 * @param level
+	 *            the level to go back to
+	 */
+
+	private void cancelUntil(int level) {
+
+		if (decisionLevel() > level) {
+
+			int limit = trailLimits.get(level);
+
+			for (int i = trail.size() - 1; i >= limit; i--) {
+
+				int literal = trail.get(i);
+				int variable = Literal.variable(literal);
+
+				values[variable] = UNASSIGNED;
+				heuristic.unassign(variable);
+
+				if (phaseSaving) {
+					phases[variable] = !Literal.isNegated(literal);
+				}
+			}
+
+			trail.shrink(limit);
+			trailLimits.shrink(level);
+			propagationHead = limit;
+		}
+	}
+
+	/**
+	 * Choose the next literal to decide on
+	 *
+	 * @return the literal, or UNDEFINED if every variable is assigned
+	 */
+
+	private int pickBranchLiteral() {
+
+		int variable = heuristic.pickBranchVariable(this);
+
+		if (variable == -1) {
+			return Literal.UNDEFINED;
+		}
+
+		return Literal.make(variable, !phases[variable]);
+	}
+
+	/**
+	 * Find out if a variable has been assigned a value
+	 *
+	 * @param variable
+	 *            the variable
+	 * @return whether it is assigned
+	 */
+
+	public boolean isAssigned(int variable) {
+		return values[variable] != UNASSIGNED;
+	}
+
+	/**
+	 * Set the heuristic used to choose decision variables
+	 *
+	 * @param heuristic
+	 *            the branching heuristic
+	 */
+
+	public void setHeuristic(BranchingHeuristic heuristic) {
+		this.heuristic = heuristic;
+		heuristic.initialise(variables);
+	}
+
+	/**
+	 * Set the policy used to decide when to restart
+	 *
+	 * @param restartPolicy
+	 *            the restart policy
+	 */
+
+	public void setRestartPolicy(RestartPolicy restartPolicy) {
+		this.restartPolicy = restartPolicy;
+	}
+
+	/**
+	 * Set the polarity decisions are made with, and whether the polarity a
+	 * variable last had should be reused when it is decided on again
+	 *
+	 * @param defaultPhase
+	 *            the polarity of decisions on variables without a saved phase
+	 * @param phaseSaving
+	 *            whether to save phases
+	 */
+
+	public void setPhase(boolean defaultPhase, boolean phaseSaving) {
+
+		this.phaseSaving = phaseSaving;
+
+		Arrays.fill(phases, defaultPhase);
+	}
+
+	/**
+	 * Share learned clauses with the other solvers using an exchange. Short
+	 * learned clauses are exported as soon as they are learned, and the
+	 * clauses of the other solvers are imported at every restart
+	 *
+	 * @param exchange
+	 *            the exchange
+	 * @param id
+	 *            a number identifying this solver among those using the
+	 *            exchange
+	 */
+
+	public void setExchange(ClauseExchange exchange, int id) {
+		this.exchange = exchange;
+		this.exchangeId = id;
+		this.importPosition = 0;
+	}
+
+	/**
+	 * Search for a model of the clauses
+	 *
+	 * @return the model, or null if there is not one
+	 * @throws CancellationException
+	 *             if the thread is interrupted before the search finishes
+	 */
+
+	public LogicModel solve() {
+
+		if (unsatisfiable) {
+			return null;
+		}
+
+		IntList learnt = new IntList();
+
+		while (true) {
+
+			if (Thread.currentThread().isInterrupted()) {
+				throw new CancellationException("Search interrupted");
+			}
+
+			int conflict = propagate();
+
+			if (conflict != NO_REASON) {
+
+				conflicts++;
+
+				if (decisionLevel() == 0) {
+					unsatisfiable = true;
+					return null;
+				}
+
+				int level = analyze(conflict, learnt);
+				int lbd = computeLBD(learnt);
+
+				heuristic.conflict();
+				restartPolicy.conflict(lbd);
+				learnts.conflict();
+				cancelUntil(level);
+
+				if (TheoremProver.debug) {
+					System.out.println("Learned clause: " + table.toClause(learnt.toArray()) + ", backjumping to level "
+							+ level);
+				}
+
+				if (exchange != null && exchange.accepts(learnt.size(), lbd)) {
+					exchange.export(exchangeId, learnt.toArray(), lbd);
+					exported++;
+				}
+
+				if (learnt.size() == 1) {
+					enqueue(learnt.get(0), NO_REASON);
+				} else {
+					int offset = arena.addClause(learnt.toArray(), 0, learnt.size(), ClauseArena.LEARNT);
+					learnts.add(offset, lbd);
+					attach(offset);
+					enqueue(learnt.get(0), offset);
+				}
+
+				if (learnts.shouldReduce()) {
+					reduceDatabase();
+				}
+
+			} else if (restartPolicy.shouldRestart()) {
+
+				restarts++;
+				restartPolicy.restarted();
+				cancelUntil(0);
+
+				if (exchange != null) {
+
+					importPosition = exchange.read(exchangeId, importPosition, this::importClause);
+
+					if (unsatisfiable) {
+						return null;
+					}
+				}
+
+			} else {
+
+				int literal = pickBranchLiteral();
+
+				if (literal == Literal.UNDEFINED) {
+					return getModel();
+				}
+
+				decisions++;
+				trailLimits.add(trail.size());
+				enqueue(literal, NO_REASON);
+			}
+		}
+	}
+
+	/**
+	 * Add a clause learned by another solver at decision level 0, dropping its
+	 * false literals. Satisfied clauses are ignored
+	 *
+	 * @param literals
+	 *            the literals of the clause
+	 * @param lbd
+	 *            the literal block distance it was learned with
+	 */
+
+	private void importClause(int[] literals, int lbd) {
+
+		if (unsatisfiable) {
+			return;
+		}
+
+		int[] kept = new int[literals.length];
+		int length = 0;
+
+		for (int literal : literals) {
+
+			byte value = value(literal);
+
+			if (value == TRUE) {
+				return;
+			} else if (value == UNASSIGNED) {
+				kept[length] = literal;
+				length++;
+			}
+		}
+
+		imported++;
+
+		if (length == 0) {
+			unsatisfiable = true;
+		} else if (length == 1) {
+			enqueue(kept[0], NO_REASON);
+		} else {
+			int offset = arena.addClause(kept, 0, length, ClauseArena.LEARNT);
+			learnts.add(offset, Math.min(lbd, length));
+			attach(offset);
+		}
+	}
+
+	/**
+	 * Delete the worst learned clauses and compact the arena, then update the
+	 * reasons of the assignments on the trail and rebuild the watch lists
+	 */
+
+	private void reduceDatabase() {
+
+		int removed = learnts.reduce(this::isLocked);
+		ClauseRelocation relocation = arena.compact();
+
+		learnts.relocate(relocation);
+
+		for (int i = 0; i < trail.size(); i++) {
+
+			int variable = Literal.variable(trail.get(i));
+
+			if (reasons[variable] != NO_REASON) {
+				reasons[variable] = relocation.relocate(reasons[variable]);
+			}
+		}
+
+		for (IntList watchers : watches) {
+			watchers.clear();
+		}
+
+		for (int offset = arena.first(); offset < arena.end(); offset = arena.next(offset)) {
+			if (arena.size(offset) > 1) {
+				attach(offset);
+			}
+		}
+
+		if (TheoremProver.debug) {
+			System.out.println("Deleted " + removed + " learned clauses, " + learnts.size() + " kept");
+		}
+	}
+
+	/**
+	 * Find out if a clause is the reason for the assignment of its first
+	 * literal, in which case it cannot be deleted
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @return whether the clause is locked
+	 */
+
+	private boolean isLocked(int offset) {
+
+		int first = arena.literal(offset, 0);
+
+		return value(first) == TRUE && reasons[Literal.variable(first)] == offset;
+	}
+
+	/**
+	 * Compute the literal block distance of a clause, the number of distinct
+	 * decision levels among its literals
+	 *
+	 * @param clause
+	 *            the literals of the clause
+	 * @return the literal block distance
+	 */
+
+	private int computeLBD(IntList clause) {
+
+		stamp++;
+		int lbd = 0;
+
+		for (int i = 0; i < clause.size(); i++) {
+
+			int level = levels[Literal.variable(clause.get(i))];
+
+			if (levelStamps[level] != stamp) {
+				levelStamps[level] = stamp;
+				lbd++;
+			}
+		}
+
+		return lbd;
+	}
+
+	/**
+	 * Build a model from the current (complete) assignment
+	 *
+	 * @return the model
+	 */
+
+	private LogicModel getModel() {
+
+		LogicModel model = new LogicModel();
+
+		for (int i = 0; i < variables; i++) {
+			model.addAtom(ExpressionFactory.atom(table.getName(i)), values[i] == TRUE);
+		}
+
+		return model;
+	}
+
+	/**
+	 * Get the number of conflicts found so far
+	 *
+	 * @return the number of conflicts
+	 */
+
+	public long getConflicts() {
+		return conflicts;
+	}
+
+	/**
+	 * Get the number of decisions made so far
+	 *
+	 * @return the number of decisions
+	 */
+
+	public long getDecisions() {
+		return decisions;
+	}
+
+	/**
+	 * Get the number of literals propagated so far
+	 *
+	 * @return the number of propagations
+	 */
+
+	public long getPropagations() {
+		return propagations;
+	}
+
+	/**
+	 * Get the number of restarts made so far
+	 *
+	 * @return the number of restarts
+	 */
+
+	public long getRestarts() {
+		return restarts;
+	}
+
+	/**
+	 * Get the number of learned clauses exported to the exchange so far
+	 *
+	 * @return the number of exported clauses
+	 */
+
+	public long getExported() {
+		return exported;
+	}
+
+	/**
+	 * Get the number of clauses imported from the exchange so far, not
+	 * counting those already satisfied
+	 *
+	 * @return the number of imported clauses
+	 */
+
+	public long getImported() {
+		return imported;
+	}
+
+	/**
+	 * Get a summary of the counters of this solver
+	 *
+	 * @return the summary
+	 */
+
+	public String getStatistics() {
+		String statistics = "Conflicts: " + conflicts + ", decisions: " + decisions + ", propagations: "
+				+ propagations + ", restarts: " + restarts + ", learned clauses: " + learnts.getLearned()
+				+ ", deleted: " + learnts.getDeleted();
+
+		if (exchange != null) {
+			statistics += ", exported: " + exported + ", imported: " + imported;
+		}
+
+		return statistics;
+	}
+
+}
@@ -0,0 +1,445 @@
+package reasoning;
+
+import java.util.HashSet;
+
+/**
+ * A clause database storing every clause contiguously in a single int array.
+ * Each clause is a header (its size, flags and activity) followed by its
+ * literals, and is addressed by the offset of its header. The literal block
+ * distance of a learned clause is kept in the bits of the flags above the
+ * LEARNT and DELETED flags
+ *
+ * @author George Kaye
+ *
+ */
+
+public class ClauseArena {
+
+	/**
+	 * Flag marking a clause learned during search
+	 */
+
+	public static final int LEARNT = 1;
+
+	/**
+	 * Flag marking a clause that has been deleted
+	 */
+
+	public static final int DELETED = 2;
+
+	private static final int SIZE = 0;
+	private static final int FLAGS = 1;
+	private static final int ACTIVITY = 2;
+	private static final int HEADER = 3;
+
+	private static final int LBD_SHIFT = 2;
+	private static final int FLAG_MASK = (1 << LBD_SHIFT) - 1;
+
+	private int[] data;
+	private int top;
+	private int clauses;
+	private int deleted;
+
+	/**
+	 * Create a new (empty) clause arena
+	 */
+
+	public ClauseArena() {
+		this(1024);
+	}
+
+	/**
+	 * Create a new clause arena with space for a number of ints
+	 *
+	 * @param capacity
+	 *            the initial capacity
+	 */
+
+	public ClauseArena(int capacity) {
+		this.data = new int[Math.max(capacity, HEADER)];
+		this.top = 0;
+		this.clauses = 0;
+		this.deleted = 0;
+	}
+
+	/**
+	 * Create a clause arena containing the clauses of a clause normal form
+	 *
+	 * @param cnf
+	 *            the clause normal form
+	 * @param table
+	 *            the table to intern atoms into
+	 * @return the clause arena
+	 */
+
+	public static ClauseArena fromClauseNormalForm(ClauseNormalForm cnf, VariableTable table) {
+
+		ClauseArena arena = new ClauseArena();
+
+		for (HashSet<LogicExpression> clause : cnf.getCNF()) {
+			arena.addClause(table.toLiterals(clause));
+		}
+
+		return arena;
+	}
+
+	/**
+	 * Add a clause to the arena
+	 *
+	 * @param literals
+	 *            the literals of the clause
+	 * @return the offset of the new clause
+	 */
+
+	public int addClause(int[] literals) {
+		return addClause(literals, 0, literals.length, 0);
+	}
+
+	/**
+	 * Add a clause to the arena from part of an array
+	 *
+	 * @param literals
+	 *            the array containing the literals
+	 * @param from
+	 *            the index of the first literal
+	 * @param length
+	 *            the number of literals
+	 * @param flags
+	 *            the flags of the clause
+	 * @return the offset of the new clause
+	 */
+
+	public int addClause(int[] literals, int from, int length, int flags) {
+
+		ensureCapacity(top + HEADER + length);
+
+		int offset = top;
+
+		data[offset + SIZE] = length;
+		data[offset + FLAGS] = flags;
+		data[offset + ACTIVITY] = 0;
+		System.arraycopy(literals, from, data, offset + HEADER, length);
+
+		top += HEADER + length;
+		clauses++;
+
+		return offset;
+	}
+
+	/**
+	 * Add every clause of another arena to the end of this one, keeping their
+	 * order
+	 *
+	 * @param other
+	 *            the other arena
+	 */
+
+	public void append(ClauseArena other) {
+
+		ensureCapacity(top + other.top);
+		System.arraycopy(other.data, 0, data, top, other.top);
+
+		top += other.top;
+		clauses += other.clauses;
+		deleted += other.deleted;
+	}
+
+	/**
+	 * Grow the array so it can hold a number of ints
+	 *
+	 * @param capacity
+	 *            the number of ints required
+	 */
+
+	private void ensureCapacity(int capacity) {
+
+		if (capacity > data.length) {
+
+			int newLength = data.length;
+
+			while (newLength < capacity) {
+				newLength += newLength >> 1;
+			}
+
+			int[] newData = new int[newLength];
+			System.arraycopy(data, 0, newData, 0, top);
+			data = newData;
+		}
+	}
+
+	/**
+	 * Get the number of literals in a clause
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @return the size of the clause
+	 */
+
+	public int size(int offset) {
+		return data[offset + SIZE];
+	}
+
+	/**
+	 * Get a literal of a clause
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @param i
+	 *            the index of the literal within the clause
+	 * @return the literal
+	 */
+
+	public int literal(int offset, int i) {
+		return data[offset + HEADER + i];
+	}
+
+	/**
+	 * Replace a literal of a clause
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @param i
+	 *            the index of the literal within the clause
+	 * @param literal
+	 *            the new literal
+	 */
+
+	public void setLiteral(int offset, int i, int literal) {
+		data[offset + HEADER + i] = literal;
+	}
+
+	/**
+	 * Get all the literals of a clause
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @return a copy of the literals
+	 */
+
+	public int[] getLiterals(int offset) {
+
+		int[] literals = new int[size(offset)];
+		System.arraycopy(data, offset + HEADER, literals, 0, literals.length);
+
+		return literals;
+	}
+
+	/**
+	 * Get the flags of a clause
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @return the flags
+	 */
+
+	public int getFlags(int offset) {
+		return data[offset + FLAGS] & FLAG_MASK;
+	}
+
+	/**
+	 * Find out if a clause has a flag set
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @param flag
+	 *            the flag
+	 * @return whether the flag is set
+	 */
+
+	public boolean hasFlag(int offset, int flag) {
+		return (data[offset + FLAGS] & flag) != 0;
+	}
+
+	/**
+	 * Get the literal block distance recorded for a clause
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @return the literal block distance
+	 */
+
+	public int getLBD(int offset) {
+		return data[offset + FLAGS] >>> LBD_SHIFT;
+	}
+
+	/**
+	 * Record the literal block distance of a clause
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @param lbd
+	 *            the literal block distance
+	 */
+
+	public void setLBD(int offset, int lbd) {
+		data[offset + FLAGS] = (data[offset + FLAGS] & FLAG_MASK) | (lbd << LBD_SHIFT);
+	}
+
+	/**
+	 * Get the activity of a clause
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @return the activity
+	 */
+
+	public float getActivity(int offset) {
+		return Float.intBitsToFloat(data[offset + ACTIVITY]);
+	}
+
+	/**
+	 * Set the activity of a clause
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @param activity
+	 *            the activity
+	 */
+
+	public void setActivity(int offset, float activity) {
+		data[offset + ACTIVITY] = Float.floatToRawIntBits(activity);
+	}
+
+	/**
+	 * Mark a clause as deleted, its space is kept until the arena is compacted
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 */
+
+	public void delete(int offset) {
+
+		if (!hasFlag(offset, DELETED)) {
+			data[offset + FLAGS] |= DELETED;
+			deleted++;
+		}
+	}
+
+	/**
+	 * Get the offset of the first clause
+	 *
+	 * @return the first offset, equal to end() if the arena is empty
+	 */
+
+	public int first() {
+		return 0;
+	}
+
+	/**
+	 * Get the offset of the clause following a clause
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @return the next offset, equal to end() if this is the last clause
+	 */
+
+	public int next(int offset) {
+		return offset + HEADER + data[offset + SIZE];
+	}
+
+	/**
+	 * Get the offset just past the last clause
+	 *
+	 * @return the end offset
+	 */
+
+	public int end() {
+		return top;
+	}
+
+	/**
+	 * Get the number of clauses (including deleted ones) in the arena
+	 *
+	 * @return the number of clauses
+	 */
+
+	public int getClauseCount() {
+		return clauses;
+	}
+
+	/**
+	 * Get the number of deleted clauses still taking up space in the arena
+	 *
+	 * @return the number of deleted clauses
+	 */
+
+	public int getDeletedCount() {
+		return deleted;
+	}
+
+	/**
+	 * Remove the space taken by deleted clauses, moving the remaining clauses
+	 * towards the start of the arena while keeping their order
+	 *
+	 * @return where each remaining clause was moved to
+	 */
+
+	public ClauseRelocation compact() {
+
+		IntList oldOffsets = new IntList(clauses - deleted);
+		IntList newOffsets = new IntList(clauses - deleted);
+
+		int write = 0;
+		int read = 0;
+
+		while (read < top) {
+
+			int length = HEADER + data[read + SIZE];
+
+			if (!hasFlag(read, DELETED)) {
+
+				if (write != read) {
+					System.arraycopy(data, read, data, write, length);
+				}
+
+				oldOffsets.add(read);
+				newOffsets.add(write);
+				write += length;
+			}
+
+			read += length;
+		}
+
+		top = write;
+		clauses -= deleted;
+		deleted = 0;
+
+		return new ClauseRelocation(oldOffsets.toArray(), newOffsets.toArray());
+	}
+
+	/**
+	 * Get a clause as a set of atoms
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @param table
+	 *            the table the literals were interned in
+	 * @return the clause
+	 */
+
+	public HashSet<LogicExpression> getClause(int offset, VariableTable table) {
+		return table.toClause(getLiterals(offset));
+	}
+
+	/**
+	 * Convert the (non-deleted) clauses of this arena into a clause normal form
+	 *
+	 * @param table
+	 *            the table the literals were interned in
+	 * @return the clause normal form
+	 */
+
+	public ClauseNormalForm toClauseNormalForm(VariableTable table) {
+
+		HashSet<HashSet<LogicExpression>> cnf = new HashSet<>();
+
+		for (int offset = first(); offset < end(); offset = next(offset)) {
+			if (!hasFlag(offset, DELETED)) {
+				cnf.add(getClause(offset, table));
+			}
+		}
+
+		return new ClauseNormalForm(cnf);
+	}
+
+}
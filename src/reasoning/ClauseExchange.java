@@ -0,0 +1,176 @@
+package reasoning;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A ring buffer of learned clauses shared between solvers running on the same
+ * problem at once. Solvers export their short learned clauses into it and
+ * import the clauses the others exported. Writers reserve a slot by advancing
+ * a counter and then publish the clause into it, so neither side ever takes a
+ * lock. Each reader keeps its own position, and a reader that falls more than
+ * a whole buffer behind loses the oldest clauses
+ *
+ * @author George Kaye
+ *
+ */
+
+public class ClauseExchange {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	private AtomicReferenceArray<Shared> slots;
+	private int mask;
+	private AtomicLong tail;
+
+	private int maxSize;
+	private int maxLBD;
+
+	/**
+	 * Create a new exchange with the default capacity
+	 *
+	 * @param maxSize
+	 *            the largest size of a clause to share
+	 * @param maxLBD
+	 *            the largest literal block distance of a clause to share,
+	 *            whatever its size
+	 */
+
+	public ClauseExchange(int maxSize, int maxLBD) {
+		this(DEFAULT_CAPACITY, maxSize, maxLBD);
+	}
+
+	/**
+	 * Create a new exchange
+	 *
+	 * @param capacity
+	 *            the number of clauses kept, rounded up to a power of two
+	 * @param maxSize
+	 *            the largest size of a clause to share
+	 * @param maxLBD
+	 *            the largest literal block distance of a clause to share,
+	 *            whatever its size
+	 */
+
+	public ClauseExchange(int capacity, int maxSize, int maxLBD) {
+
+		int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+		this.tail = new AtomicLong();
+		this.maxSize = maxSize;
+		this.maxLBD = maxLBD;
+	}
+
+	/**
+	 * Find out if a learned clause is worth sharing
+	 *
+	 * @param size
+	 *            the size of the clause
+	 * @param lbd
+	 *            the literal block distance of the clause
+	 * @return whether to export it
+	 */
+
+	public boolean accepts(int size, int lbd) {
+		return size <= maxSize || lbd <= maxLBD;
+	}
+
+	/**
+	 * Export a clause, overwriting the oldest clause if the buffer is full
+	 *
+	 * @param producer
+	 *            the number of the exporting solver
+	 * @param literals
+	 *            the literals of the clause, which must not be changed
+	 *            afterwards
+	 * @param lbd
+	 *            the literal block distance of the clause
+	 */
+
+	public void export(int producer, int[] literals, int lbd) {
+
+		long sequence = tail.getAndIncrement();
+
+		slots.set((int) (sequence & mask), new Shared(sequence, producer, literals, lbd));
+	}
+
+	/**
+	 * Pass every clause exported by another solver since a position to a
+	 * consumer. Reading stops at a slot that has been reserved but not yet
+	 * published, so that it is read next time
+	 *
+	 * @param consumer
+	 *            the number of the importing solver, whose own clauses are
+	 *            skipped
+	 * @param from
+	 *            the position to read from, 0 for a new reader
+	 * @param sink
+	 *            what to do with each clause
+	 * @return the position to read from next time
+	 */
+
+	public long read(int consumer, long from, Sink sink) {
+
+		long end = tail.get();
+		long sequence = Math.max(from, end - slots.length());
+
+		while (sequence < end) {
+
+			Shared shared = slots.get((int) (sequence & mask));
+
+			if (shared == null || shared.sequence < sequence) {
+				break;
+			}
+
+			// a clause overwritten before it was read is lost
+			if (shared.sequence == sequence && shared.producer != consumer) {
+				sink.accept(shared.literals, shared.lbd);
+			}
+
+			sequence++;
+		}
+
+		return sequence;
+	}
+
+	/**
+	 * Receives the clauses read from an exchange
+	 */
+
+	@FunctionalInterface
+	public interface Sink {
+
+		/**
+		 * Receive a clause
+		 *
+		 * @param literals
+		 *            the literals of the clause, which must not be changed
+		 * @param lbd
+		 *            the literal block distance of the clause
+		 */
+
+		void accept(int[] literals, int lbd);
+	}
+
+	/**
+	 * A clause in the buffer
+	 */
+
+	private static final class Shared {
+
+		private final long sequence;
+		private final int producer;
+		private final int[] literals;
+		private final int lbd;
+
+		Shared(long sequence, int producer, int[] literals, int lbd) {
+			this.sequence = sequence;
+			this.producer = producer;
+			this.literals = literals;
+			this.lbd = lbd;
+		}
+	}
+
+}
@@ -28,6 +28,21 @@ public class ClauseNormalForm {
 
 	}
 
+	/**
+	 * Create a new clause normal form from the clauses of a clause arena
+	 * 
+	 * @param arena
+	 *            the clause arena
+	 * @param table
+	 *            the table the literals were interned in
+	 */
+
+	public ClauseNormalForm(ClauseArena arena, VariableTable table) {
+
+		this.cnf = arena.toClauseNormalForm(table).getCNF();
+
+	}
+
 	/**
 	 * Get the actual clause normal form
 	 * 
@@ -40,30 +55,26 @@ public class ClauseNormalForm {
 
 	public String toString() {
 
-		String set = "{";
+		StringBuilder set = new StringBuilder("{");
+		String separator = "";
 
 		for (HashSet<LogicExpression> hs : cnf) {
 
-			String clause = "{";
+			set.append(separator).append('{');
+			separator = ", ";
+
+			String literalSeparator = "";
 
 			for (LogicExpression exp : hs) {
-				clause += exp;
-				clause += ", ";
+				set.append(literalSeparator).append(exp);
+				literalSeparator = ", ";
 			}
 
-			clause = clause.substring(0, clause.length() - 2);
-			clause += "}";
-
-			set += clause;
-			set += ", ";
-		}
-
-		if (set.length() != 0) {
-			set = set.substring(0, set.length() - 2);
+			set.append('}');
 		}
 
-		set += "}";
-		return set;
+		set.append('}');
+		return set.toString();
 
 	}
 
@@ -178,7 +189,7 @@ public class ClauseNormalForm {
 		for (HashSet<LogicExpression> clause : cnf) {
 			for (LogicExpression atom : clause) {
 				if (!LogicMethods.containsNegation(atom, atoms)) {
-					atoms.add(new Atom(atom.getName()));
+					atoms.add(ExpressionFactory.atom(atom.getName()));
 				}
 			}
 		}
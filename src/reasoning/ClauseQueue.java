@@ -0,0 +1,199 @@
+package reasoning;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The queue of clauses waiting to be the given clause in a resolution proof.
+ * Clauses can be chosen by age (oldest first), by weight (fewest literals
+ * first, oldest first among equal weights) or by alternating between the two,
+ * taking a number of clauses by weight for every clause taken by age. Clauses
+ * are identified by their line, and later lines are younger
+ *
+ * @author George Kaye
+ *
+ */
+
+public class ClauseQueue {
+
+	/**
+	 * The ways of choosing the next clause
+	 */
+
+	public enum Selection {
+
+		/**
+		 * The oldest clause
+		 */
+		AGE,
+
+		/**
+		 * The lightest clause
+		 */
+		WEIGHT,
+
+		/**
+		 * The lightest clause, except for every so often the oldest
+		 */
+		RATIO
+	}
+
+	private Selection selection;
+	private int ratio;
+	private int picks;
+
+	private IntList ages;
+	private int head;
+
+	private long[] heap;
+	private int size;
+
+	private BitSet taken;
+
+	/**
+	 * Create a new (empty) queue
+	 *
+	 * @param selection
+	 *            how to choose the next clause
+	 * @param ratio
+	 *            with ratio selection, the number of clauses taken by weight
+	 *            for every clause taken by age
+	 */
+
+	public ClauseQueue(Selection selection, int ratio) {
+		this.selection = selection;
+		this.ratio = ratio;
+		this.picks = 0;
+		this.ages = new IntList();
+		this.head = 0;
+		this.heap = new long[16];
+		this.size = 0;
+		this.taken = new BitSet();
+	}
+
+	/**
+	 * Add a clause to the queue
+	 *
+	 * @param line
+	 *            the line of the clause, greater than every line added before
+	 * @param weight
+	 *            the weight of the clause
+	 */
+
+	public void add(int line, int weight) {
+
+		if (selection != Selection.WEIGHT) {
+			ages.add(line);
+		}
+
+		if (selection != Selection.AGE) {
+			push(((long) weight << 32) | line);
+		}
+	}
+
+	/**
+	 * Take the next clause from the queue
+	 *
+	 * @return the line of the clause, or -1 if the queue is empty
+	 */
+
+	public int poll() {
+
+		while (head < ages.size() || size > 0) {
+
+			boolean byAge;
+
+			if (selection == Selection.RATIO) {
+				byAge = picks % (ratio + 1) == ratio;
+			} else {
+				byAge = selection == Selection.AGE;
+			}
+
+			// fall back to the other order once one runs out
+			if (byAge && head == ages.size()) {
+				byAge = false;
+			} else if (!byAge && size == 0) {
+				byAge = true;
+			}
+
+			int line;
+
+			if (byAge) {
+				line = ages.get(head);
+				head++;
+
+			} else {
+				line = (int) pop();
+			}
+
+			// with ratio selection every clause is in both orders
+			if (!taken.get(line)) {
+				taken.set(line);
+				picks++;
+				return line;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Add a key to the heap
+	 *
+	 * @param key
+	 *            the weight in the high half and line in the low half
+	 */
+
+	private void push(long key) {
+
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, 2 * size);
+		}
+
+		int i = size;
+		size++;
+
+		while (i > 0 && heap[(i - 1) / 2] > key) {
+			heap[i] = heap[(i - 1) / 2];
+			i = (i - 1) / 2;
+		}
+
+		heap[i] = key;
+	}
+
+	/**
+	 * Remove the smallest key from the heap
+	 *
+	 * @return the key
+	 */
+
+	private long pop() {
+
+		long top = heap[0];
+		size--;
+
+		long key = heap[size];
+		int i = 0;
+
+		while (2 * i + 1 < size) {
+
+			int child = 2 * i + 1;
+
+			if (child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+
+			if (heap[child] >= key) {
+				break;
+			}
+
+			heap[i] = heap[child];
+			i = child;
+		}
+
+		heap[i] = key;
+
+		return top;
+	}
+
+}
@@ -0,0 +1,52 @@
+package reasoning;
+
+import java.util.Arrays;
+
+/**
+ * A record of where the clauses of a clause arena moved to when it was
+ * compacted
+ * 
+ * @author George Kaye
+ *
+ */
+
+public class ClauseRelocation {
+
+	private int[] oldOffsets;
+	private int[] newOffsets;
+
+	/**
+	 * Create a new relocation
+	 * 
+	 * @param oldOffsets
+	 *            the offsets of the surviving clauses before compaction, in
+	 *            ascending order
+	 * @param newOffsets
+	 *            the offsets of the same clauses after compaction
+	 */
+
+	public ClauseRelocation(int[] oldOffsets, int[] newOffsets) {
+		this.oldOffsets = oldOffsets;
+		this.newOffsets = newOffsets;
+	}
+
+	/**
+	 * Find the new offset of a clause
+	 * 
+	 * @param offset
+	 *            the offset before compaction
+	 * @return the offset after compaction, or -1 if the clause was deleted
+	 */
+
+	public int relocate(int offset) {
+
+		int i = Arrays.binarySearch(oldOffsets, offset);
+
+		if (i < 0) {
+			return -1;
+		}
+
+		return newOffsets[i];
+	}
+
+}
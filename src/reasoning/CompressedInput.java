@@ -0,0 +1,174 @@
+package reasoning;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens input files that may be compressed, decompressing them as they are
+ * read so they never have to be decompressed to disk. The compression is
+ * recognised from the magic bytes at the start of the file, falling back to
+ * the file extension only when the file is too short to hold them
+ * 
+ * @author George Kaye
+ *
+ */
+
+public class CompressedInput {
+
+	/**
+	 * The compression formats that can be read
+	 */
+
+	public enum Compression {
+		NONE, GZIP, XZ
+	};
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final byte[] GZIP_MAGIC = { (byte) 0x1f, (byte) 0x8b };
+	private static final byte[] XZ_MAGIC = { (byte) 0xfd, '7', 'z', 'X', 'Z', 0 };
+
+	private CompressedInput() {
+	}
+
+	/**
+	 * Find out how a file is compressed
+	 * 
+	 * @param path
+	 *            the path of the file
+	 * @return the compression format
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+
+	public static Compression detect(Path path) throws IOException {
+
+		ByteBuffer magic = ByteBuffer.allocate(XZ_MAGIC.length);
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			while (magic.hasRemaining() && channel.read(magic) > 0) {
+			}
+		}
+
+		if (startsWith(magic, GZIP_MAGIC)) {
+			return Compression.GZIP;
+		} else if (startsWith(magic, XZ_MAGIC)) {
+			return Compression.XZ;
+		} else if (!magic.hasRemaining()) {
+			// the file is long enough to hold either magic number
+			return Compression.NONE;
+		}
+
+		String name = path.getFileName().toString();
+
+		if (name.endsWith(".gz")) {
+			return Compression.GZIP;
+		} else if (name.endsWith(".xz")) {
+			return Compression.XZ;
+		}
+
+		return Compression.NONE;
+	}
+
+	/**
+	 * Find out if some bytes begin with a magic number
+	 * 
+	 * @param bytes
+	 *            the bytes that were read
+	 * @param magic
+	 *            the magic number
+	 * @return whether the bytes begin with it
+	 */
+
+	private static boolean startsWith(ByteBuffer bytes, byte[] magic) {
+
+		if (bytes.position() < magic.length) {
+			return false;
+		}
+
+		for (int i = 0; i < magic.length; i++) {
+			if (bytes.get(i) != magic[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Open a file, decompressing it if it is compressed
+	 * 
+	 * @param path
+	 *            the path of the file
+	 * @return a channel of the decompressed contents
+	 * @throws IOException
+	 *             if the file could not be opened
+	 */
+
+	public static ReadableByteChannel open(Path path) throws IOException {
+
+		switch (detect(path)) {
+		case GZIP:
+			InputStream file = Channels.newInputStream(FileChannel.open(path, StandardOpenOption.READ));
+			return Channels.newChannel(new GZIPInputStream(file, BUFFER_SIZE));
+		case XZ:
+			return Channels.newChannel(decompressXZ(path));
+		default:
+			return FileChannel.open(path, StandardOpenOption.READ);
+		}
+	}
+
+	/**
+	 * Decompress an xz file. The JDK has no xz decoder so the output of the xz
+	 * command is streamed instead
+	 * 
+	 * @param path
+	 *            the path of the file
+	 * @return a stream of the decompressed contents
+	 * @throws IOException
+	 *             if xz could not be run
+	 */
+
+	private static InputStream decompressXZ(Path path) throws IOException {
+
+		Process process = null;
+
+		try {
+			process = new ProcessBuilder("xz", "--decompress", "--stdout", path.toString())
+					.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		} catch (IOException e) {
+			throw new IOException("Reading .xz files requires the xz command to be installed");
+		}
+
+		Process xz = process;
+
+		// check that xz succeeded once the output has been read
+		return new FilterInputStream(new BufferedInputStream(xz.getInputStream(), BUFFER_SIZE)) {
+
+			@Override
+			public void close() throws IOException {
+
+				super.close();
+
+				try {
+					if (xz.waitFor() != 0) {
+						throw new IOException("xz failed to decompress " + path);
+					}
+				} catch (InterruptedException e) {
+					xz.destroy();
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+	}
+
+}
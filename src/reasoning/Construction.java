@@ -1,10 +1,12 @@
 package reasoning;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 
 /**
  * A LogicExpression combining several subexpressions all connected by the same
- * terminal
+ * terminal. The list of terms must not be modified once the construction has
+ * been made, since its hash code and depth are worked out when it is created
  * 
  * @author George Kaye
  *
@@ -15,6 +17,9 @@ public class Construction implements LogicExpression {
 	private ArrayList<LogicExpression> terms;
 	private Terminal terminal;
 	private int negations;
+	private int id;
+	private int hash;
+	private int depth;
 
 	/**
 	 * Create a new construction with no negations
@@ -28,9 +33,7 @@ public class Construction implements LogicExpression {
 	 */
 
 	public Construction(ArrayList<LogicExpression> terms, Terminal terminal) {
-		this.terms = terms;
-		this.terminal = terminal;
-		this.negations = 0;
+		this(terms, terminal, 0);
 	}
 
 	/**
@@ -50,23 +53,56 @@ public class Construction implements LogicExpression {
 		this.terms = terms;
 		this.terminal = terminal;
 		this.negations = negations;
+		this.id = -1;
+		this.hash = negations + terms.hashCode() + terminal.hashCode();
+
+		int deepest = 0;
+
+		for (LogicExpression term : terms) {
+			if (term.getDepth() > deepest) {
+				deepest = term.getDepth();
+			}
+		}
+
+		this.depth = 1 + deepest;
 	}
 
 	public String toString() {
 
-		String result = "";
+		StringBuilder result = new StringBuilder();
 
-		for (int i = 0; i < negations; i++) {
-			result += "-";
-		}
+		// subexpressions and the text between them still to be written, kept
+		// on a stack so deep expressions can be printed
+		ArrayDeque<Object> stack = new ArrayDeque<>();
+		stack.push(this);
 
-		result += "(" + terms.get(0);
+		while (!stack.isEmpty()) {
 
-		for (int i = 1; i < terms.size(); i++) {
-			result += (" " + terminal.toString() + " " + terms.get(i).toString());
+			Object next = stack.pop();
+
+			if (!(next instanceof Construction)) {
+				result.append(next);
+				continue;
+			}
+
+			Construction exp = (Construction) next;
+
+			for (int i = 0; i < exp.negations; i++) {
+				result.append('-');
+			}
+
+			result.append('(');
+			stack.push(")");
+
+			for (int i = exp.terms.size() - 1; i > 0; i--) {
+				stack.push(exp.terms.get(i));
+				stack.push(" " + exp.terminal.toString() + " ");
+			}
+
+			stack.push(exp.terms.get(0));
 		}
 
-		return result + ")";
+		return result.toString();
 
 	}
 
@@ -87,16 +123,7 @@ public class Construction implements LogicExpression {
 
 	@Override
 	public int getDepth() {
-
-		int deepest = 0;
-
-		for (LogicExpression term : terms) {
-			if (term.getDepth() > deepest) {
-				deepest = term.getDepth();
-			}
-		}
-
-		return 1 + deepest;
+		return depth;
 	}
 
 	@Override
@@ -109,9 +136,30 @@ public class Construction implements LogicExpression {
 		return null;
 	}
 
+	/**
+	 * Get the id given to this construction by the expression factory
+	 * 
+	 * @return the id, or -1 if the construction was not made by the factory
+	 */
+
+	int getId() {
+		return id;
+	}
+
+	/**
+	 * Set the id of this construction
+	 * 
+	 * @param id
+	 *            the id given by the expression factory
+	 */
+
+	void setId(int id) {
+		this.id = id;
+	}
+
 	@Override
 	public int hashCode() {
-		return negations + terms.hashCode() + terminal.hashCode();
+		return hash;
 	}
 
 	@Override
@@ -122,6 +170,13 @@ public class Construction implements LogicExpression {
 			return true;
 
 		Construction exp = (Construction) obj;
+
+		// shared instances are equal by reference, so different instances
+		// made by the factory are different expressions
+		if (exp.hash != hash || ExpressionFactory.distinct(exp.id, id)) {
+			return false;
+		}
+
 		if (exp.getNegations() == negations && exp.getTerms().equals(terms) && exp.getTerminal() == terminal) {
 			return true;
 		}
@@ -154,7 +209,7 @@ public class Construction implements LogicExpression {
 			newTerms.add(0, term);
 		}
 
-		return new Construction(newTerms, this.terminal);
+		return ExpressionFactory.construction(newTerms, this.terminal);
 
 	}
 
@@ -180,7 +235,7 @@ public class Construction implements LogicExpression {
 			newTerms.add(term);
 		}
 
-		return new Construction(newTerms, this.terminal);
+		return ExpressionFactory.construction(newTerms, this.terminal);
 
 	}
 
@@ -0,0 +1,349 @@
+package reasoning;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Solves the cubes a set of clauses was split into, each as a separate
+ * problem with the literals of the cube added as unit clauses, on a pool of
+ * threads. The clauses are satisfiable exactly when one of the cubes is, so
+ * the first model found is the answer and the clauses are unsatisfiable once
+ * every cube is refuted. The cubes can be given as a list or taken from a
+ * queue shared with other processes
+ *
+ * @author George Kaye
+ *
+ */
+
+public class CubeAndConquer {
+
+	private static final long POLL_INTERVAL = 100;
+	private static final long RENEW_INTERVAL = 5000;
+	private static final long CLAIM_TIMEOUT = 60000;
+
+	private ClauseArena arena;
+	private VariableTable table;
+	private Function<ClauseArena, LogicModel> solver;
+
+	private AtomicLong solved;
+	private AtomicLong refuted;
+
+	/**
+	 * Create a new solver which solves each cube with CDCL
+	 *
+	 * @param arena
+	 *            the clause arena, which is not modified
+	 * @param table
+	 *            the table the literals were interned in
+	 */
+
+	public CubeAndConquer(ClauseArena arena, VariableTable table) {
+		this(arena, table, copy -> new CDCLSolver(copy, table).solve());
+	}
+
+	/**
+	 * Create a new solver
+	 *
+	 * @param arena
+	 *            the clause arena, which is not modified
+	 * @param table
+	 *            the table the literals were interned in
+	 * @param solver
+	 *            finds a model of a copy of the clauses with the cube added,
+	 *            or null if there is not one
+	 */
+
+	public CubeAndConquer(ClauseArena arena, VariableTable table, Function<ClauseArena, LogicModel> solver) {
+		this.arena = arena;
+		this.table = table;
+		this.solver = solver;
+		this.solved = new AtomicLong();
+		this.refuted = new AtomicLong();
+	}
+
+	/**
+	 * Solve a single cube
+	 *
+	 * @param cube
+	 *            the literals of the cube
+	 * @return a model of the clauses extending the cube, or null if there is
+	 *         not one
+	 */
+
+	public LogicModel solve(int[] cube) {
+
+		ClauseArena copy = new ClauseArena();
+		copy.append(arena);
+
+		for (int literal : cube) {
+			copy.addClause(new int[] { literal });
+		}
+
+		LogicModel model = solver.apply(copy);
+
+		solved.incrementAndGet();
+
+		if (model == null) {
+			refuted.incrementAndGet();
+		}
+
+		return model;
+	}
+
+	/**
+	 * Solve a list of cubes, stopping at the first model found
+	 *
+	 * @param cubes
+	 *            the cubes
+	 * @param threads
+	 *            the number of threads to solve cubes on
+	 * @return a model, or null if every cube was refuted
+	 */
+
+	public LogicModel conquer(List<int[]> cubes, int threads) {
+
+		ExecutorService executor = createExecutor(threads);
+		CompletionService<LogicModel> completion = new ExecutorCompletionService<>(executor);
+
+		try {
+
+			for (int[] cube : cubes) {
+				completion.submit(() -> solve(cube));
+			}
+
+			for (int i = 0; i < cubes.size(); i++) {
+
+				LogicModel model = completion.take().get();
+
+				if (model != null) {
+					return model;
+				}
+			}
+
+			return null;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving cubes", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A cube could not be solved", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Solve the cubes in a queue until one has a model or every cube has been
+	 * written and there are none left, waiting for any cubes claimed by other
+	 * processes to be solved and taking back those whose claims have been
+	 * abandoned
+	 *
+	 * @param queue
+	 *            the queue
+	 * @param threads
+	 *            the number of threads to solve cubes on
+	 * @return a model found by any process, or null if every cube was refuted
+	 * @throws IOException
+	 *             if the queue cannot be read or written, or some of its
+	 *             cubes have gone
+	 */
+
+	public LogicModel conquer(CubeQueue queue, int threads) throws IOException {
+
+		ExecutorService executor = createExecutor(threads);
+		ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "cube-renew");
+			thread.setDaemon(true);
+			return thread;
+		});
+		AtomicReference<LogicModel> found = new AtomicReference<>();
+		ArrayList<Callable<Void>> workers = new ArrayList<>();
+
+		renewer.scheduleWithFixedDelay(() -> {
+			try {
+				queue.renew();
+			} catch (IOException e) {
+				// try again next time
+			}
+		}, RENEW_INTERVAL, RENEW_INTERVAL, TimeUnit.MILLISECONDS);
+
+		for (int i = 0; i < threads; i++) {
+			workers.add(() -> {
+
+				while (found.get() == null && queue.findModel() == null) {
+
+					CubeQueue.Claim claim = queue.poll();
+
+					if (claim == null) {
+
+						// the cubes are still being written, or the ones left are
+						// claimed by other processes
+						if (queue.getTotal() != -1 && queue.remaining() == 0) {
+							break;
+						}
+
+						if (queue.reclaim(CLAIM_TIMEOUT) == 0) {
+							Thread.sleep(POLL_INTERVAL);
+						}
+
+						continue;
+					}
+
+					LogicModel model = solve(claim.getCube());
+
+					if (model == null) {
+						queue.refute(claim);
+					} else {
+						queue.satisfy(claim, toLiterals(model));
+						found.compareAndSet(null, model);
+					}
+				}
+
+				return null;
+			});
+		}
+
+		try {
+
+			for (Future<Void> worker : executor.invokeAll(workers)) {
+				worker.get();
+			}
+
+			if (found.get() != null) {
+				return found.get();
+			}
+
+			int[] model = queue.findModel();
+
+			if (model != null) {
+				return toModel(model);
+			}
+
+			int total = queue.getTotal();
+			int refuted = queue.refuted();
+
+			if (refuted != total) {
+				throw new IOException("Only " + refuted + " of the " + total + " cubes in the queue were refuted");
+			}
+
+			return null;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving cubes", e);
+		} catch (ExecutionException e) {
+
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+
+			throw new IllegalStateException("A cube could not be solved", e.getCause());
+
+		} finally {
+			executor.shutdownNow();
+			renewer.shutdownNow();
+		}
+	}
+
+	/**
+	 * Create the pool of threads solving cubes
+	 *
+	 * @param threads
+	 *            the number of threads
+	 * @return the pool
+	 */
+
+	private static ExecutorService createExecutor(int threads) {
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "cube");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Convert a model into the literals true in it
+	 *
+	 * @param model
+	 *            the model
+	 * @return the literals
+	 */
+
+	private int[] toLiterals(LogicModel model) {
+
+		IntList literals = new IntList();
+
+		for (Map.Entry<LogicExpression, Boolean> entry : model.getModel().entrySet()) {
+
+			int variable = table.getVariable(entry.getKey().getName());
+
+			if (variable != -1) {
+				literals.add(Literal.make(variable, !entry.getValue()));
+			}
+		}
+
+		return literals.toArray();
+	}
+
+	/**
+	 * Convert the literals true in a model into the model
+	 *
+	 * @param literals
+	 *            the literals
+	 * @return the model
+	 * @throws IOException
+	 *             if the literals name a variable the problem does not have
+	 */
+
+	private LogicModel toModel(int[] literals) throws IOException {
+
+		LogicModel model = new LogicModel();
+
+		for (int literal : literals) {
+
+			if (Literal.variable(literal) >= table.size()) {
+				throw new IOException("Model names variable " + (Literal.variable(literal) + 1)
+						+ " but the problem has only " + table.size());
+			}
+
+			model.addAtom(ExpressionFactory.atom(table.getName(Literal.variable(literal))), !Literal.isNegated(literal));
+		}
+
+		return model;
+	}
+
+	/**
+	 * Get the number of cubes solved so far by this process
+	 *
+	 * @return the number of cubes solved
+	 */
+
+	public long getSolved() {
+		return solved.get();
+	}
+
+	/**
+	 * Get the number of cubes refuted so far by this process
+	 *
+	 * @return the number of cubes refuted
+	 */
+
+	public long getRefuted() {
+		return refuted.get();
+	}
+
+}
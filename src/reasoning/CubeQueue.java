@@ -0,0 +1,554 @@
+package reasoning;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A queue of cubes kept as files in a directory, so that several processes
+ * can solve the cubes of one problem. Each cube is a file named id-n.cube
+ * holding a line "a l1 l2 ... 0" of DIMACS literals, where id identifies the
+ * problem, so that files left in the directory by runs on other problems are
+ * never read. A solver claims a cube by renaming it to id-n.claimed, which
+ * only one solver can do, and when it is done renames it to id-n.unsat or
+ * writes a model "v l1 l2 ... 0" to id-n.sat. While a solver works on a cube
+ * it renews the claim now and then, and a claim which has not been renewed
+ * for a while is taken to be abandoned by a process that died and is put back
+ * in the queue. Once every cube has been written the number of cubes is
+ * written to id.done, and the problem is only unsatisfiable once that many
+ * cubes have been refuted. Every process must number the variables the same
+ * way, so they should all read the same input with the same options
+ *
+ * @author George Kaye
+ *
+ */
+
+public class CubeQueue {
+
+	private static final String PENDING = ".cube";
+	private static final String CLAIMED = ".claimed";
+	private static final String UNSATISFIABLE = ".unsat";
+	private static final String SATISFIABLE = ".sat";
+	private static final String DONE = ".done";
+
+	private Path directory;
+	private String problem;
+	private int counter;
+	private Set<Path> claims;
+
+	/**
+	 * Create a queue in a directory, creating the directory if it does not
+	 * exist
+	 *
+	 * @param directory
+	 *            the directory
+	 * @param problem
+	 *            the identifier of the problem, as given by
+	 *            {@link #identify(ClauseArena, VariableTable)}
+	 * @throws IOException
+	 *             if the directory cannot be created
+	 */
+
+	public CubeQueue(Path directory, String problem) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.problem = problem;
+		this.counter = 0;
+		this.claims = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * Identify a problem by a digest of its variables and clauses, so that
+	 * processes reading the same input agree on it and a different problem
+	 * almost surely does not
+	 *
+	 * @param arena
+	 *            the clause arena
+	 * @param table
+	 *            the table the literals were interned in
+	 * @return the identifier
+	 */
+
+	public static String identify(ClauseArena arena, VariableTable table) {
+
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+
+		for (int i = 0; i < table.size(); i++) {
+			digest.update(table.getName(i).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+
+		for (int offset = arena.first(); offset < arena.end(); offset = arena.next(offset)) {
+			for (int i = 0; i < arena.size(offset); i++) {
+				update(digest, arena.literal(offset, i));
+			}
+
+			update(digest, -1);
+		}
+
+		StringBuilder builder = new StringBuilder();
+		byte[] bytes = digest.digest();
+
+		for (int i = 0; i < 8; i++) {
+			builder.append(String.format("%02x", bytes[i]));
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Add an int to a digest
+	 *
+	 * @param digest
+	 *            the digest
+	 * @param value
+	 *            the int
+	 */
+
+	private static void update(MessageDigest digest, int value) {
+		digest.update((byte) (value >>> 24));
+		digest.update((byte) (value >>> 16));
+		digest.update((byte) (value >>> 8));
+		digest.update((byte) value);
+	}
+
+	/**
+	 * Delete every file left in the directory by earlier runs on the same
+	 * problem, before writing its cubes again
+	 *
+	 * @throws IOException
+	 *             if a file cannot be deleted
+	 */
+
+	public void reset() throws IOException {
+
+		Files.deleteIfExists(directory.resolve(problem + DONE));
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, problem + "-*")) {
+			for (Path file : files) {
+				Files.deleteIfExists(file);
+			}
+		}
+
+		counter = 0;
+	}
+
+	/**
+	 * Add a cube to the queue
+	 *
+	 * @param cube
+	 *            the literals of the cube
+	 * @throws IOException
+	 *             if the cube cannot be written
+	 */
+
+	public void offer(int[] cube) throws IOException {
+
+		counter++;
+
+		Path file = directory.resolve(problem + "-" + counter + PENDING);
+		Path temporary = directory.resolve(problem + "-" + counter + ".tmp");
+
+		Files.write(temporary, line("a", cube).getBytes(StandardCharsets.US_ASCII));
+		move(temporary, file);
+	}
+
+	/**
+	 * Record that every cube has been added to the queue
+	 *
+	 * @throws IOException
+	 *             if the number of cubes cannot be written
+	 */
+
+	public void publish() throws IOException {
+
+		Path temporary = directory.resolve(problem + ".tmp");
+
+		Files.write(temporary, ("t " + counter + "\n").getBytes(StandardCharsets.US_ASCII));
+		move(temporary, directory.resolve(problem + DONE));
+	}
+
+	/**
+	 * Get the number of cubes written to the queue
+	 *
+	 * @return the number of cubes, or -1 if they have not all been written
+	 *         yet
+	 * @throws IOException
+	 *             if the number is malformed
+	 */
+
+	public int getTotal() throws IOException {
+
+		String text;
+
+		try {
+			text = new String(Files.readAllBytes(directory.resolve(problem + DONE)), StandardCharsets.US_ASCII).trim();
+		} catch (NoSuchFileException e) {
+			return -1;
+		}
+
+		String[] tokens = text.split("\\s+");
+
+		if (tokens.length != 2 || !tokens[0].equals("t")) {
+			throw new IOException("Malformed cube file: " + text);
+		}
+
+		try {
+			return Integer.parseInt(tokens[1]);
+		} catch (NumberFormatException e) {
+			throw new IOException("Malformed cube file: " + text);
+		}
+	}
+
+	/**
+	 * Claim a cube from the queue
+	 *
+	 * @return the claimed cube, or null if there are no cubes left to claim
+	 * @throws IOException
+	 *             if the directory cannot be read
+	 */
+
+	public Claim poll() throws IOException {
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, problem + "-*" + PENDING)) {
+
+			for (Path file : files) {
+
+				Path claimed = rename(file, CLAIMED);
+
+				try {
+					move(file, claimed);
+				} catch (NoSuchFileException | FileAlreadyExistsException e) {
+					// another solver claimed it first
+					continue;
+				}
+
+				Files.setLastModifiedTime(claimed, FileTime.fromMillis(System.currentTimeMillis()));
+				claims.add(claimed);
+
+				String text = new String(Files.readAllBytes(claimed), StandardCharsets.US_ASCII);
+
+				return new Claim(claimed, parse(text, "a"));
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Record that a claimed cube has no model
+	 *
+	 * @param claim
+	 *            the claimed cube
+	 * @throws IOException
+	 *             if the cube cannot be renamed
+	 */
+
+	public void refute(Claim claim) throws IOException {
+
+		claims.remove(claim.file);
+
+		try {
+			move(claim.file, rename(claim.file, UNSATISFIABLE));
+		} catch (NoSuchFileException | FileAlreadyExistsException e) {
+			// the claim was taken to be abandoned and the cube put back
+		}
+	}
+
+	/**
+	 * Record a model of a claimed cube
+	 *
+	 * @param claim
+	 *            the claimed cube
+	 * @param model
+	 *            the literals true in the model
+	 * @throws IOException
+	 *             if the model cannot be written
+	 */
+
+	public void satisfy(Claim claim, int[] model) throws IOException {
+
+		Path temporary = rename(claim.file, ".tmp");
+
+		claims.remove(claim.file);
+		Files.write(temporary, line("v", model).getBytes(StandardCharsets.US_ASCII));
+
+		try {
+			move(temporary, rename(claim.file, SATISFIABLE));
+		} catch (FileAlreadyExistsException e) {
+			// the cube was put back and solved again by another process
+			Files.deleteIfExists(temporary);
+		}
+
+		Files.deleteIfExists(claim.file);
+	}
+
+	/**
+	 * Find a model recorded by any solver
+	 *
+	 * @return the literals true in the model, or null if none has been found
+	 * @throws IOException
+	 *             if the directory cannot be read
+	 */
+
+	public int[] findModel() throws IOException {
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, problem + "-*" + SATISFIABLE)) {
+			Iterator<Path> iterator = files.iterator();
+
+			if (iterator.hasNext()) {
+				return parse(new String(Files.readAllBytes(iterator.next()), StandardCharsets.US_ASCII), "v");
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Count the cubes waiting to be claimed or being solved
+	 *
+	 * @return the number of cubes left
+	 * @throws IOException
+	 *             if the directory cannot be read
+	 */
+
+	public int remaining() throws IOException {
+		return count("{" + PENDING + "," + CLAIMED + "}");
+	}
+
+	/**
+	 * Count the cubes that have been refuted
+	 *
+	 * @return the number of cubes refuted
+	 * @throws IOException
+	 *             if the directory cannot be read
+	 */
+
+	public int refuted() throws IOException {
+		return count(UNSATISFIABLE);
+	}
+
+	/**
+	 * Count the cube files with an extension
+	 *
+	 * @param extension
+	 *            the extension, or a glob matching several
+	 * @return the number of files
+	 * @throws IOException
+	 *             if the directory cannot be read
+	 */
+
+	private int count(String extension) throws IOException {
+
+		int count = 0;
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, problem + "-*" + extension)) {
+			for (Iterator<Path> iterator = files.iterator(); iterator.hasNext(); iterator.next()) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Renew the claims this queue holds, so that other processes do not take
+	 * them to be abandoned
+	 *
+	 * @throws IOException
+	 *             if a claim cannot be renewed
+	 */
+
+	public void renew() throws IOException {
+
+		FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+
+		for (Path claimed : claims) {
+			try {
+				Files.setLastModifiedTime(claimed, now);
+			} catch (NoSuchFileException e) {
+				// the claim was taken to be abandoned, or has just been solved
+			}
+		}
+	}
+
+	/**
+	 * Put back in the queue the claimed cubes which have not been renewed for
+	 * a while
+	 *
+	 * @param timeout
+	 *            the number of milliseconds after which a claim is abandoned
+	 * @return the number of cubes put back
+	 * @throws IOException
+	 *             if the directory cannot be read
+	 */
+
+	public int reclaim(long timeout) throws IOException {
+
+		long stale = System.currentTimeMillis() - timeout;
+		int reclaimed = 0;
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, problem + "-*" + CLAIMED)) {
+
+			for (Path file : files) {
+
+				if (claims.contains(file)) {
+					continue;
+				}
+
+				try {
+
+					if (Files.getLastModifiedTime(file).toMillis() < stale) {
+						move(file, rename(file, PENDING));
+						reclaimed++;
+					}
+
+				} catch (NoSuchFileException | FileAlreadyExistsException e) {
+					// solved or put back by another process
+				}
+			}
+		}
+
+		return reclaimed;
+	}
+
+	/**
+	 * Rename a file atomically, so that other processes either see the old
+	 * name or the new one
+	 *
+	 * @param from
+	 *            the file
+	 * @param to
+	 *            the new name
+	 * @throws IOException
+	 *             if the file cannot be moved
+	 */
+
+	private static void move(Path from, Path to) throws IOException {
+
+		if (Files.exists(to)) {
+			throw new FileAlreadyExistsException(to.toString());
+		}
+
+		try {
+			Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(from, to);
+		}
+	}
+
+	/**
+	 * Change the extension of a cube file
+	 *
+	 * @param file
+	 *            the file
+	 * @param extension
+	 *            the new extension
+	 * @return the renamed path
+	 */
+
+	private static Path rename(Path file, String extension) {
+
+		String name = file.getFileName().toString();
+
+		return file.resolveSibling(name.substring(0, name.lastIndexOf('.')) + extension);
+	}
+
+	/**
+	 * Write literals as a line of DIMACS literals ending in 0
+	 *
+	 * @param prefix
+	 *            the letter starting the line
+	 * @param literals
+	 *            the literals
+	 * @return the line
+	 */
+
+	private static String line(String prefix, int[] literals) {
+
+		StringJoiner joiner = new StringJoiner(" ", prefix + " ", " 0\n");
+
+		for (int literal : literals) {
+			joiner.add(Integer.toString(Literal.toDIMACS(literal)));
+		}
+
+		return joiner.toString();
+	}
+
+	/**
+	 * Read a line of DIMACS literals ending in 0
+	 *
+	 * @param text
+	 *            the line
+	 * @param prefix
+	 *            the letter the line should start with
+	 * @return the literals
+	 * @throws IOException
+	 *             if the line is malformed
+	 */
+
+	private static int[] parse(String text, String prefix) throws IOException {
+
+		String[] tokens = text.trim().split("\\s+");
+
+		if (tokens.length < 2 || !tokens[0].equals(prefix) || !tokens[tokens.length - 1].equals("0")) {
+			throw new IOException("Malformed cube file: " + text.trim());
+		}
+
+		int[] literals = new int[tokens.length - 2];
+
+		try {
+			for (int i = 0; i < literals.length; i++) {
+				literals[i] = Literal.fromDIMACS(Integer.parseInt(tokens[i + 1]));
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("Malformed cube file: " + text.trim());
+		}
+
+		return literals;
+	}
+
+	/**
+	 * A cube claimed by this solver
+	 */
+
+	public static final class Claim {
+
+		private final Path file;
+		private final int[] cube;
+
+		Claim(Path file, int[] cube) {
+			this.file = file;
+			this.cube = cube;
+		}
+
+		/**
+		 * Get the literals of the cube
+		 *
+		 * @return the literals
+		 */
+
+		public int[] getCube() {
+			return cube;
+		}
+	}
+
+}
@@ -0,0 +1,408 @@
+package reasoning;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A streaming reader for the DIMACS file format. The input is read through a
+ * fixed size buffer and tokenised byte by byte, with clauses added straight to
+ * a clause arena. Variable n becomes the atom Xn. The input can either be a
+ * channel or a buffer such as a memory-mapped part of a file
+ *
+ * @author George Kaye
+ *
+ */
+
+public class DimacsReader {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private ReadableByteChannel channel;
+	private ByteBuffer source;
+	private byte[] bytes;
+	private ByteBuffer buffer;
+	private int position;
+	private int limit;
+	private int line;
+
+	private int[] clause;
+	private int length;
+
+	private int declaredVariables;
+	private int declaredClauses;
+	private int maxVariable;
+
+	/**
+	 * Create a new reader
+	 *
+	 * @param channel
+	 *            the channel to read the DIMACS input from
+	 */
+
+	public DimacsReader(ReadableByteChannel channel) {
+		this(channel, null, 1);
+	}
+
+	/**
+	 * Create a new reader
+	 *
+	 * @param source
+	 *            the buffer to read the DIMACS input from, starting at its
+	 *            position
+	 */
+
+	public DimacsReader(ByteBuffer source) {
+		this(null, source, 1);
+	}
+
+	/**
+	 * Create a new reader for part of a file
+	 *
+	 * @param source
+	 *            the buffer to read the DIMACS input from, starting at its
+	 *            position
+	 * @param line
+	 *            the number of the line in the file the buffer starts on
+	 */
+
+	public DimacsReader(ByteBuffer source, int line) {
+		this(null, source, line);
+	}
+
+	private DimacsReader(ReadableByteChannel channel, ByteBuffer source, int line) {
+		this.channel = channel;
+		this.source = source;
+		this.bytes = new byte[BUFFER_SIZE];
+		this.buffer = ByteBuffer.wrap(bytes);
+		this.position = 0;
+		this.limit = 0;
+		this.line = line;
+		this.clause = new int[16];
+		this.length = 0;
+		this.declaredVariables = -1;
+		this.declaredClauses = -1;
+		this.maxVariable = 0;
+	}
+
+	/**
+	 * Read all of the input, adding each clause to an arena. Variables are
+	 * interned into the table as X1, X2, ... so that variable n has index n - 1
+	 *
+	 * @param table
+	 *            the table to intern variables into
+	 * @return the clause arena
+	 * @throws IOException
+	 *             if the input could not be read or is not valid DIMACS
+	 */
+
+	public ClauseArena read(VariableTable table) throws IOException {
+
+		ClauseArena arena = readClauses(null);
+
+		addVariables(table, Math.max(declaredVariables, maxVariable));
+
+		return arena;
+	}
+
+	/**
+	 * Read all of the input without naming any variables, variable n is given
+	 * index n - 1
+	 *
+	 * @param arena
+	 *            the arena to add clauses to, or null to create one sized by
+	 *            the problem line
+	 * @return the clause arena
+	 * @throws IOException
+	 *             if the input could not be read or is not valid DIMACS
+	 */
+
+	public ClauseArena readClauses(ClauseArena arena) throws IOException {
+
+		boolean lineStart = true;
+		int c = next();
+
+		while (c != -1) {
+
+			if (c == '\n') {
+				line++;
+				lineStart = true;
+				c = next();
+			} else if (c == ' ' || c == '\t' || c == '\r') {
+				c = next();
+			} else if (lineStart && c == 'c') {
+				c = skipLine();
+			} else if (lineStart && c == 'p') {
+
+				readHeader();
+
+				// a clause takes up its literals plus a header of three ints
+				if (arena == null) {
+					arena = new ClauseArena((int) Math.min(Integer.MAX_VALUE - 8, declaredClauses * 6L));
+				}
+
+				c = next();
+				line++;
+
+			} else if (lineStart && c == '%') {
+				// some benchmark sets mark the end of the formula like this
+				break;
+			} else if (c == '-' || (c >= '0' && c <= '9')) {
+
+				lineStart = false;
+
+				if (arena == null) {
+					arena = new ClauseArena();
+				}
+
+				boolean negative = false;
+				long value = 0;
+
+				if (c == '-') {
+					negative = true;
+					c = next();
+				}
+
+				if (c < '0' || c > '9') {
+					throw error("expected a digit");
+				}
+
+				while (c >= '0' && c <= '9') {
+
+					value = value * 10 + (c - '0');
+
+					if (value > Integer.MAX_VALUE / 2) {
+						throw error("variable too large");
+					}
+
+					c = next();
+				}
+
+				if (c != -1 && c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+					throw error("unexpected character '" + (char) c + "'");
+				}
+
+				if (value == 0) {
+					arena.addClause(clause, 0, length, 0);
+					length = 0;
+				} else {
+
+					if (value > maxVariable) {
+						maxVariable = (int) value;
+					}
+
+					addLiteral(Literal.make((int) value - 1, negative));
+				}
+
+			} else {
+				throw error("unexpected character '" + (char) c + "'");
+			}
+		}
+
+		if (arena == null) {
+			arena = new ClauseArena();
+		}
+
+		// allow the last clause to be missing its terminating 0
+		if (length != 0) {
+			arena.addClause(clause, 0, length, 0);
+			length = 0;
+		}
+
+		return arena;
+	}
+
+	/**
+	 * Get the next byte of input
+	 *
+	 * @return the byte, or -1 at the end of the input
+	 * @throws IOException
+	 *             if the input could not be read
+	 */
+
+	private int next() throws IOException {
+
+		if (position == limit && !fill()) {
+			return -1;
+		}
+
+		int c = bytes[position] & 0xff;
+		position++;
+
+		return c;
+	}
+
+	/**
+	 * Refill the buffer from the input (kept out of next() so that it stays
+	 * small enough to be inlined)
+	 *
+	 * @return false at the end of the input
+	 * @throws IOException
+	 *             if the input could not be read
+	 */
+
+	private boolean fill() throws IOException {
+
+		int read = 0;
+
+		if (source != null) {
+
+			read = Math.min(source.remaining(), bytes.length);
+			source.get(bytes, 0, read);
+
+			if (read == 0) {
+				read = -1;
+			}
+
+		} else {
+
+			buffer.clear();
+
+			while (read == 0) {
+				read = channel.read(buffer);
+			}
+		}
+
+		if (read < 0) {
+			return false;
+		}
+
+		position = 0;
+		limit = read;
+
+		return true;
+	}
+
+	/**
+	 * Skip to the end of the current line
+	 *
+	 * @return the newline at the end of the line, or -1 at the end of the
+	 *         input
+	 * @throws IOException
+	 *             if the input could not be read
+	 */
+
+	private int skipLine() throws IOException {
+
+		int c = next();
+
+		while (c != '\n' && c != -1) {
+			c = next();
+		}
+
+		return c;
+	}
+
+	/**
+	 * Read the problem line (p cnf variables clauses)
+	 *
+	 * @throws IOException
+	 *             if the input could not be read or the line is malformed
+	 */
+
+	private void readHeader() throws IOException {
+
+		StringBuilder header = new StringBuilder("p");
+		int c = next();
+
+		while (c != '\n' && c != -1) {
+			header.append((char) c);
+			c = next();
+		}
+
+		String[] parts = header.toString().trim().split("\\s+");
+
+		if (parts.length != 4 || !parts[1].equals("cnf")) {
+			throw error("expected 'p cnf <variables> <clauses>'");
+		}
+
+		try {
+			declaredVariables = Integer.parseInt(parts[2]);
+			declaredClauses = Integer.parseInt(parts[3]);
+		} catch (NumberFormatException e) {
+			throw error("expected 'p cnf <variables> <clauses>'");
+		}
+	}
+
+	/**
+	 * Make sure the table contains the variables X1 to Xn, sizing it for all
+	 * of them first
+	 *
+	 * @param table
+	 *            the table
+	 * @param n
+	 *            the highest variable, at least the number declared in the
+	 *            problem line
+	 */
+
+	public static void addVariables(VariableTable table, int n) {
+
+		table.ensureCapacity(n);
+
+		while (table.size() < n) {
+			table.intern("X" + (table.size() + 1));
+		}
+	}
+
+	/**
+	 * Add a literal to the clause currently being read
+	 *
+	 * @param literal
+	 *            the literal
+	 */
+
+	private void addLiteral(int literal) {
+
+		if (length == clause.length) {
+			int[] bigger = new int[clause.length * 2];
+			System.arraycopy(clause, 0, bigger, 0, length);
+			clause = bigger;
+		}
+
+		clause[length] = literal;
+		length++;
+	}
+
+	/**
+	 * Create an exception for malformed input
+	 *
+	 * @param message
+	 *            what went wrong
+	 * @return the exception
+	 */
+
+	private IOException error(String message) {
+		return new IOException("Invalid DIMACS on line " + line + ": " + message);
+	}
+
+	/**
+	 * Get the highest variable used in a clause
+	 *
+	 * @return the highest variable
+	 */
+
+	public int getMaxVariable() {
+		return maxVariable;
+	}
+
+	/**
+	 * Get the number of variables declared in the problem line
+	 *
+	 * @return the number of variables, -1 if there was no problem line
+	 */
+
+	public int getDeclaredVariables() {
+		return declaredVariables;
+	}
+
+	/**
+	 * Get the number of clauses declared in the problem line
+	 *
+	 * @return the number of clauses, -1 if there was no problem line
+	 */
+
+	public int getDeclaredClauses() {
+		return declaredClauses;
+	}
+
+}
@@ -0,0 +1,140 @@
+package reasoning;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded cache from expressions to the result of some transformation
+ * of them. When the cache is full the least recently used entry is evicted.
+ * Expressions made by the expression factory are shared, so lookups are
+ * usually decided by reference
+ *
+ * @author George Kaye
+ *
+ */
+
+public class ExpressionCache {
+
+	private LinkedHashMap<LogicExpression, LogicExpression> entries;
+	private int capacity;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Create a new cache
+	 *
+	 * @param capacity
+	 *            the maximum number of entries
+	 */
+
+	public ExpressionCache(int capacity) {
+
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<LogicExpression, LogicExpression>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<LogicExpression, LogicExpression> eldest) {
+
+				if (size() > ExpressionCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Look up the result for an expression
+	 *
+	 * @param exp
+	 *            the expression
+	 * @return the result, or null if it is not in the cache
+	 */
+
+	public synchronized LogicExpression get(LogicExpression exp) {
+
+		LogicExpression result = entries.get(exp);
+
+		if (result == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Store the result for an expression
+	 *
+	 * @param exp
+	 *            the expression
+	 * @param result
+	 *            the result
+	 */
+
+	public synchronized void put(LogicExpression exp, LogicExpression result) {
+		entries.put(exp, result);
+	}
+
+	/**
+	 * Remove every entry and reset the counters
+	 */
+
+	public synchronized void clear() {
+		entries.clear();
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	/**
+	 * Get the number of entries in the cache
+	 *
+	 * @return the number of entries
+	 */
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the number of lookups that found a result
+	 *
+	 * @return the number of hits
+	 */
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of lookups that did not find a result
+	 *
+	 * @return the number of misses
+	 */
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of entries evicted to keep the cache within its capacity
+	 *
+	 * @return the number of evictions
+	 */
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized String toString() {
+		return hits + " hits, " + misses + " misses, " + evictions + " evictions, " + entries.size() + " entries";
+	}
+
+}
@@ -0,0 +1,278 @@
+package reasoning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import reasoning.LogicExpression.ExpressionType;
+
+/**
+ * Creates logic expressions, making sure that there is only ever one instance
+ * of each distinct expression (hash-consing). Atoms are looked up by their name
+ * and negations and constructions by their terminal, negations and the ids of
+ * their terms, so equal subexpressions are shared rather than copied and are
+ * usually equal by reference. Expressions made by the factory must never be
+ * modified
+ *
+ * @author George Kaye
+ *
+ */
+
+public class ExpressionFactory {
+
+	private static ConcurrentHashMap<Object, LogicExpression> table = new ConcurrentHashMap<>();
+	private static AtomicInteger ids = new AtomicInteger();
+	private static volatile int generation = 0;
+
+	/**
+	 * Get the atom with a name and no negations
+	 *
+	 * @param name
+	 *            the name of the atom
+	 * @return the atom
+	 */
+
+	public static LogicExpression atom(String name) {
+		return atom(name, 0);
+	}
+
+	/**
+	 * Get the atom with a name and a number of negations
+	 *
+	 * @param name
+	 *            the name of the atom
+	 * @param negations
+	 *            the number of negations
+	 * @return the atom
+	 */
+
+	public static LogicExpression atom(String name, int negations) {
+
+		AtomKey key = new AtomKey(name, negations);
+		LogicExpression exp = table.get(key);
+
+		if (exp == null) {
+
+			Atom atom = new Atom(name, negations);
+			atom.setId(ids.getAndIncrement());
+
+			exp = table.putIfAbsent(key, atom);
+
+			if (exp == null) {
+				exp = atom;
+			}
+		}
+
+		return exp;
+	}
+
+	/**
+	 * Get the construction of some terms with no negations
+	 *
+	 * @param terms
+	 *            the terms, which are interned if they were not made by the
+	 *            factory
+	 * @param terminal
+	 *            the terminal
+	 * @return the construction
+	 */
+
+	public static LogicExpression construction(ArrayList<LogicExpression> terms, Terminal terminal) {
+		return construction(terms, terminal, 0);
+	}
+
+	/**
+	 * Get the construction of some terms with a number of negations
+	 *
+	 * @param terms
+	 *            the terms, which are interned if they were not made by the
+	 *            factory
+	 * @param terminal
+	 *            the terminal
+	 * @param negations
+	 *            the number of negations
+	 * @return the construction
+	 */
+
+	public static LogicExpression construction(ArrayList<LogicExpression> terms, Terminal terminal, int negations) {
+
+		ArrayList<LogicExpression> interned = new ArrayList<>(terms.size());
+		int[] children = new int[terms.size()];
+
+		for (int i = 0; i < children.length; i++) {
+
+			LogicExpression term = intern(terms.get(i));
+
+			interned.add(term);
+			children[i] = getId(term);
+		}
+
+		ConstructionKey key = new ConstructionKey(terminal, negations, children);
+		LogicExpression exp = table.get(key);
+
+		if (exp == null) {
+
+			Construction construction = new Construction(interned, terminal, negations);
+			construction.setId(ids.getAndIncrement());
+
+			exp = table.putIfAbsent(key, construction);
+
+			if (exp == null) {
+				exp = construction;
+			}
+		}
+
+		return exp;
+	}
+
+	/**
+	 * Get the shared instance of an expression, interning it and all of its
+	 * subexpressions if it was not made by the factory since the last clear
+	 *
+	 * @param exp
+	 *            the expression
+	 * @return the shared instance
+	 */
+
+	public static LogicExpression intern(LogicExpression exp) {
+
+		if (getId(exp) >= generation) {
+			return exp;
+		}
+
+		if (exp.getType() == ExpressionType.ATOM) {
+			return atom(exp.getName(), exp.getNegations());
+		}
+
+		return construction(exp.getTerms(), exp.getTerminal(), exp.getNegations());
+	}
+
+	/**
+	 * Get the number of distinct expressions made so far
+	 *
+	 * @return the number of expressions
+	 */
+
+	public static int size() {
+		return table.size();
+	}
+
+	/**
+	 * Forget every expression made so far. Expressions made before and after
+	 * are still compared correctly, but are no longer shared
+	 */
+
+	public static void clear() {
+		table.clear();
+
+		// ids given out from now on go into the empty table
+		generation = ids.get();
+	}
+
+	/**
+	 * Decide whether two ids given by the factory belong to different
+	 * expressions. Since the last clear there is only one expression with each
+	 * id, but an expression made before it may equal one made after
+	 *
+	 * @param id
+	 *            the id of one expression, or -1
+	 * @param other
+	 *            the id of the other expression, or -1
+	 * @return true if both expressions were made since the last clear and are
+	 *         different, false if they have to be compared
+	 */
+
+	static boolean distinct(int id, int other) {
+		return id != other && id >= generation && other >= generation;
+	}
+
+	/**
+	 * Get the id the factory gave an expression
+	 *
+	 * @param exp
+	 *            the expression
+	 * @return the id, or -1 if the expression was not made by the factory
+	 */
+
+	private static int getId(LogicExpression exp) {
+
+		if (exp instanceof Atom) {
+			return ((Atom) exp).getId();
+		} else if (exp instanceof Construction) {
+			return ((Construction) exp).getId();
+		}
+
+		return -1;
+	}
+
+	/**
+	 * The key of an atom in the table
+	 */
+
+	private static final class AtomKey {
+
+		private final String name;
+		private final int negations;
+
+		AtomKey(String name, int negations) {
+			this.name = name;
+			this.negations = negations;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * name.hashCode() + negations;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (!(obj instanceof AtomKey)) {
+				return false;
+			}
+
+			AtomKey key = (AtomKey) obj;
+
+			return key.negations == negations && key.name.equals(name);
+		}
+	}
+
+	/**
+	 * The key of a construction in the table
+	 */
+
+	private static final class ConstructionKey {
+
+		private final Terminal terminal;
+		private final int negations;
+		private final int[] children;
+		private final int hash;
+
+		ConstructionKey(Terminal terminal, int negations, int[] children) {
+			this.terminal = terminal;
+			this.negations = negations;
+			this.children = children;
+			this.hash = (31 * terminal.ordinal() + negations) * 31 + Arrays.hashCode(children);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (!(obj instanceof ConstructionKey)) {
+				return false;
+			}
+
+			ConstructionKey key = (ConstructionKey) obj;
+
+			return key.hash == hash && key.terminal == terminal && key.negations == negations
+					&& Arrays.equals(key.children, children);
+		}
+	}
+
+}
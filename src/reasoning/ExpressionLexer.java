@@ -0,0 +1,183 @@
+package reasoning;
+
+/**
+ * Splits the text of an expression or set of premises into tokens in a single
+ * pass. Atoms are one or more capital letters followed by any number of
+ * digits, and doubled conjunctions and disjunctions (&& and ||) are
+ * read as a single connective
+ *
+ * @author George Kaye
+ *
+ */
+
+public class ExpressionLexer {
+
+	/**
+	 * The kinds of token
+	 */
+
+	public enum Token {
+		ATOM, NOT, AND, OR, IMPLICATION, EQUIVALENCE, LEFT_BRACKET, RIGHT_BRACKET, LEFT_BRACE, RIGHT_BRACE, COMMA,
+		COLON, END
+	}
+
+	private String text;
+	private int position;
+	private int start;
+	private Token token;
+
+	/**
+	 * Create a new lexer
+	 *
+	 * @param text
+	 *            the text to split into tokens
+	 */
+
+	public ExpressionLexer(String text) {
+		this.text = text;
+		this.position = 0;
+		this.start = 0;
+		this.token = null;
+	}
+
+	/**
+	 * Read the next token
+	 *
+	 * @return the kind of token read, END once there is no more text
+	 */
+
+	public Token next() {
+
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+
+		start = position;
+
+		if (position == text.length()) {
+			token = Token.END;
+			return token;
+		}
+
+		char c = text.charAt(position);
+		position++;
+
+		switch (c) {
+		case '(':
+			token = Token.LEFT_BRACKET;
+			break;
+		case ')':
+			token = Token.RIGHT_BRACKET;
+			break;
+		case '{':
+			token = Token.LEFT_BRACE;
+			break;
+		case '}':
+			token = Token.RIGHT_BRACE;
+			break;
+		case ',':
+			token = Token.COMMA;
+			break;
+		case ':':
+			token = Token.COLON;
+			break;
+		case '&':
+			skip('&');
+			token = Token.AND;
+			break;
+		case '|':
+			skip('|');
+			token = Token.OR;
+			break;
+		case '-':
+			token = skip('>') ? Token.IMPLICATION : Token.NOT;
+			break;
+		case '<':
+
+			if (!skip('-') || !skip('>')) {
+				throw error("expected '<->'");
+			}
+
+			token = Token.EQUIVALENCE;
+			break;
+		default:
+
+			if (c < 'A' || c > 'Z') {
+				throw error("unexpected character '" + c + "'");
+			}
+
+			while (position < text.length() && text.charAt(position) >= 'A' && text.charAt(position) <= 'Z') {
+				position++;
+			}
+
+			while (position < text.length() && text.charAt(position) >= '0' && text.charAt(position) <= '9') {
+				position++;
+			}
+
+			token = Token.ATOM;
+		}
+
+		return token;
+	}
+
+	/**
+	 * Move past a character if it is the next one
+	 *
+	 * @param c
+	 *            the character
+	 * @return whether the character was there
+	 */
+
+	private boolean skip(char c) {
+
+		if (position < text.length() && text.charAt(position) == c) {
+			position++;
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Get the kind of the last token read
+	 *
+	 * @return the kind of token
+	 */
+
+	public Token getToken() {
+		return token;
+	}
+
+	/**
+	 * Get the text of the last token read
+	 *
+	 * @return the text of the token
+	 */
+
+	public String getText() {
+		return text.substring(start, position);
+	}
+
+	/**
+	 * Get where the last token read starts
+	 *
+	 * @return the index of the start of the token
+	 */
+
+	public int getPosition() {
+		return start;
+	}
+
+	/**
+	 * Create an exception for malformed input at the last token read
+	 *
+	 * @param message
+	 *            what went wrong
+	 * @return the exception
+	 */
+
+	public IllegalArgumentException error(String message) {
+		return new IllegalArgumentException("Invalid expression at position " + start + ": " + message);
+	}
+
+}
@@ -1,13 +1,20 @@
 package reasoning;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import reasoning.LogicExpression.ExpressionType;
 
 /**
  * A class containing parsing methods
@@ -51,39 +58,69 @@ public class ExpressionParser {
 	}
 
 	/**
-	 * Parses in a file in DIMACS format
+	 * Parses in a file in DIMACS format, streaming its clauses straight into a
+	 * clause arena. Files compressed with gzip or xz are decompressed as they
+	 * are read
 	 * 
 	 * @param path
 	 *            the path
-	 * @return the string of DIMACS input
+	 * @param table
+	 *            the table to intern the variables into
+	 * @return the clause arena
 	 */
 
-	public static String parseDIMACS(String path) {
-		String expression = "";
+	public static ClauseArena parseDIMACS(String path, VariableTable table) {
 
-		try {
+		ClauseArena arena = null;
 
-			BufferedReader reader = new BufferedReader(new FileReader(path));
+		try (ReadableByteChannel channel = CompressedInput.open(Paths.get(path))) {
 
-			String line = null;
+			arena = new DimacsReader(channel).read(table);
 
-			while (((line = reader.readLine()) != null)) {
-				if (!(line.charAt(0) == 'c') && !(line.charAt(0) == 'p')) {
-					expression += " " + line;
-				}
+		} catch (NoSuchFileException e) {
+			System.err.println("File not found!");
+			System.exit(1);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+
+		return arena;
+	}
+
+	/**
+	 * Parses in a file in DIMACS format by memory-mapping it and parsing
+	 * chunks of it in parallel. Compressed files cannot be mapped, so they are
+	 * streamed instead
+	 * 
+	 * @param path
+	 *            the path
+	 * @param table
+	 *            the table to intern the variables into
+	 * @return the clause arena
+	 */
+
+	public static ClauseArena parseDIMACSMapped(String path, VariableTable table) {
+
+		ClauseArena arena = null;
+
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+
+			if (CompressedInput.detect(Paths.get(path)) != CompressedInput.Compression.NONE) {
+				return parseDIMACS(path, table);
 			}
 
-			reader.close();
+			arena = new ParallelDimacsReader().read(channel, table);
 
-		} catch (FileNotFoundException e) {
+		} catch (NoSuchFileException e) {
 			System.err.println("File not found!");
 			System.exit(1);
 		} catch (IOException e) {
-			System.err.println("Something bad happened");
+			System.err.println(e.getMessage());
 			System.exit(1);
 		}
 
-		return expression;
+		return arena;
 	}
 
 	/**
@@ -96,236 +133,307 @@ public class ExpressionParser {
 	 * @param negate
 	 *            whether to negate the conclusion
 	 * @return the expression as a LogicExpression
+	 * @throws IllegalArgumentException
+	 *             if the string is not a valid expression
 	 */
 
 	public static LogicExpression parseExpression(String expression, boolean conc, boolean negate) {
 
-		LogicExpression lastExpression = null;
-		Terminal lastTerminal = null;
-		Matcher matcher = null;
+		if (!conc) {
 
-		if (conc) {
+			ExpressionLexer lexer = new ExpressionLexer(expression);
+			lexer.next();
 
-			int i = 0;
-			int j = 0;
+			LogicExpression result = parseConnectives(lexer);
+			expect(lexer, ExpressionLexer.Token.END, "expected the end of the expression");
 
-			LogicExpression result = null;
+			return result;
+		}
 
-			while (i < expression.length()) {
+		ArrayList<LogicExpression> set = parseSet(expression);
+		LogicExpression conclusion = set.remove(set.size() - 1);
 
-				if (expression.charAt(i) == '}' || expression.charAt(i) == '{' || expression.charAt(i) == ' ') {
-					i++;
-				} else if (expression.charAt(i) == ':') {
-					i++;
+		// the premises are combined with conjunctions
+		ExpressionBuilder premises = new ExpressionBuilder();
 
-					while (expression.charAt(i) == ' ') {
-						i++;
-					}
+		for (LogicExpression premise : set) {
+			premises.add(premise, Terminal.AND);
+		}
 
-					LogicExpression conclusion = parseExpression(expression.substring(i, expression.length()), false,
-							false);
+		if (negate) {
+			conclusion = LogicMethods.negate(conclusion);
+		}
 
-					if (negate) {
-						conclusion = LogicMethods.negate(conclusion);
-					}
+		premises.add(conclusion, Terminal.AND);
 
-					if (result == null) {
-						return conclusion;
-					} else {
-						return LogicMethods.combine(result, conclusion, Terminal.AND);
+		return premises.build();
+	}
 
-					}
-				} else {
+	/**
+	 * Parse a set of premises and a conclusion from a string
+	 * 
+	 * @param expression
+	 *            the set as a string
+	 * @return the premises followed by the conclusion
+	 * @throws IllegalArgumentException
+	 *             if the string is not a valid set
+	 */
 
-					j = i;
+	public static ArrayList<LogicExpression> parseSet(String expression) {
 
-					while (expression.charAt(j) != ',' && expression.charAt(j) != '}') {
-						j++;
-					}
+		ExpressionLexer lexer = new ExpressionLexer(expression);
+		lexer.next();
 
-						LogicExpression newOne = parseExpression(expression.substring(i, j), false, false);
+		ArrayList<LogicExpression> set = new ArrayList<>();
 
-						if (result != null) {
-							result = LogicMethods.combine(result, newOne, Terminal.AND);
-						} else {
-							result = newOne;
-						}
+		expect(lexer, ExpressionLexer.Token.LEFT_BRACE, "expected '{'");
 
-					i = j;
-					i++;
-				}
+		if (lexer.getToken() != ExpressionLexer.Token.RIGHT_BRACE) {
+
+			set.add(parseConnectives(lexer));
+
+			while (lexer.getToken() == ExpressionLexer.Token.COMMA) {
+				lexer.next();
+				set.add(parseConnectives(lexer));
 			}
 		}
 
-		// regular expressions for parts of the expression
-		Pattern literals = Pattern.compile("[A-Z]+[0-9]*");
-		Pattern terminals = Pattern.compile("&|\\||->|<->");
+		expect(lexer, ExpressionLexer.Token.RIGHT_BRACE, "expected ',' or '}'");
+		expect(lexer, ExpressionLexer.Token.COLON, "expected ':'");
 
-		int i = 0;
+		set.add(parseConnectives(lexer));
+		expect(lexer, ExpressionLexer.Token.END, "expected the end of the conclusion");
 
-		while (i < expression.length()) {
+		return set;
+	}
 
-			if (expression.charAt(i) == ' ') {
-				i++;
-			} else if (expression.charAt(i) == '-' && expression.charAt(i + 1) != '>') {
-				i++;
-			} else if (expression.charAt(i) == '(') {
+	/**
+	 * Parse an expression made of terms joined by connectives, stopping at the
+	 * first token that cannot continue it. The connectives are all given the
+	 * same precedence and combine from left to right, which is how expressions
+	 * have always been read, so anything else has to be bracketed. Bracketed
+	 * groups are kept on an explicit stack rather than parsed recursively, so
+	 * arbitrarily deep expressions can be parsed
+	 * 
+	 * @param lexer
+	 *            the lexer, positioned at the first token of the expression
+	 * @return the expression
+	 * @throws IllegalArgumentException
+	 *             if the tokens do not form a valid expression
+	 */
 
-				int j = i + 1;
-				boolean foundEndBracket = false;
+	private static LogicExpression parseConnectives(ExpressionLexer lexer) {
 
-				int netBrackets = 1;
+		ArrayDeque<ExpressionBuilder> groups = new ArrayDeque<>();
+		ExpressionBuilder group = new ExpressionBuilder();
 
-				while (!foundEndBracket) {
+		while (true) {
 
-					if (expression.charAt(j) == '(') {
+			// a term, possibly negated
+			int negations = 0;
 
-						netBrackets++;
+			while (lexer.getToken() == ExpressionLexer.Token.NOT) {
+				negations++;
+				lexer.next();
+			}
 
-					} else if (expression.charAt(j) == ')') {
-						netBrackets--;
-					}
+			if (lexer.getToken() == ExpressionLexer.Token.LEFT_BRACKET) {
 
-					if (netBrackets == 0) {
-						foundEndBracket = true;
-					}
+				ExpressionBuilder inner = new ExpressionBuilder();
+				inner.negations = negations;
 
-					j++;
+				groups.push(group);
+				group = inner;
 
-				}
+				lexer.next();
+				continue;
+			}
 
-				LogicExpression subExpression = ExpressionParser.parseExpression(expression.substring(i + 1, j - 1),
-						false, false);
+			if (lexer.getToken() != ExpressionLexer.Token.ATOM) {
+				throw lexer.error("expected an atom or '('");
+			}
 
-				int k = 1;
+			group.add(ExpressionFactory.atom(lexer.getText(), negations), group.connective);
+			lexer.next();
 
-				try {
-					while (expression.charAt(i - k) == '-') {
-						subExpression = LogicMethods.negate(subExpression);
-						k++;
-					}
-				} catch (StringIndexOutOfBoundsException e) {
-				}
+			// close any groups that end after this term
+			while (lexer.getToken() == ExpressionLexer.Token.RIGHT_BRACKET) {
 
-				if (lastExpression != null && subExpression != null && lastTerminal != null) {
-					lastExpression = LogicMethods.combine(lastExpression, subExpression, lastTerminal);
-				} else {
-					lastExpression = subExpression;
+				if (groups.isEmpty()) {
+					throw lexer.error("unmatched ')'");
 				}
 
-				i = j;
-
-			} else {
-
-				int literalStart = expression.length();
-				int literalEnd = expression.length();
-				int terminalStart = expression.length();
-				int terminalEnd = expression.length();
-
-				try {
-					matcher = literals.matcher(expression.substring(i));
-					matcher.find();
-					literalStart = matcher.start() + i;
-					literalEnd = matcher.end() + i;
-				} catch (IllegalStateException e) {
-				}
+				LogicExpression subExpression = group.build();
 
-				try {
-					matcher = terminals.matcher(expression.substring(i));
-					matcher.find();
-					terminalStart = matcher.start() + i;
-					terminalEnd = matcher.end() + i;
-				} catch (IllegalStateException e) {
+				for (int i = 0; i < group.negations; i++) {
+					subExpression = LogicMethods.negate(subExpression);
 				}
 
-				if (literalStart < terminalStart) {
-
-					LogicExpression newExpression = new Atom(expression.substring(literalStart, literalEnd));
-					int j = 1;
-
-					try {
-						while (expression.charAt(literalStart - j) == '-') {
-							newExpression = LogicMethods.negate(newExpression);
-							j++;
-						}
-					} catch (StringIndexOutOfBoundsException e) {
-
-					}
+				group = groups.pop();
+				group.add(subExpression, group.connective);
 
-					if (lastTerminal != null) {
-						lastExpression = LogicMethods.combine(lastExpression, newExpression, lastTerminal);
-					} else {
-						lastExpression = newExpression;
-					}
+				lexer.next();
+			}
 
-					i = literalEnd;
+			Terminal connective = connective(lexer.getToken());
 
-				} else {
+			if (connective == null) {
 
-					lastTerminal = Terminal.fromString(expression.substring(terminalStart, terminalEnd));
-					i = terminalEnd;
+				if (!groups.isEmpty()) {
+					throw lexer.error(lexer.getToken() == ExpressionLexer.Token.END ? "unmatched '('"
+							: "expected a connective or ')'");
 				}
 
+				return group.build();
 			}
 
+			group.connective = connective;
+			lexer.next();
 		}
+	}
 
-		return lastExpression;
+	/**
+	 * Get the connective a token stands for
+	 * 
+	 * @param token
+	 *            the token
+	 * @return the connective, or null if the token is not a binary connective
+	 */
+
+	private static Terminal connective(ExpressionLexer.Token token) {
+
+		switch (token) {
+		case AND:
+			return Terminal.AND;
+		case OR:
+			return Terminal.OR;
+		case IMPLICATION:
+			return Terminal.IMPLICATION;
+		case EQUIVALENCE:
+			return Terminal.EQUIVALENCE;
+		default:
+			return null;
+		}
 	}
 
 	/**
-	 * Convert a string of DIMACS into a clause normal form
-	 * @param string the string of DIMACS
-	 * @return the clause normal form from that string
+	 * Check the current token and move past it
+	 * 
+	 * @param lexer
+	 *            the lexer
+	 * @param token
+	 *            the token that should be next
+	 * @param message
+	 *            the error if it is not
+	 * @throws IllegalArgumentException
+	 *             if the token is not the expected one
 	 */
-	
-	public static ClauseNormalForm convertDIMACS(String string) {
 
-		HashMap<Integer, LogicExpression> legend = new HashMap<>();
+	private static void expect(ExpressionLexer lexer, ExpressionLexer.Token token, String message) {
 
-		HashSet<HashSet<LogicExpression>> cnf = new HashSet<>();
-		HashSet<LogicExpression> clause = new HashSet<>();
+		if (lexer.getToken() != token) {
+			throw lexer.error(message);
+		}
 
-		int i = 0;
+		lexer.next();
+	}
 
-		while (i < string.length()) {
+	/**
+	 * Builds the expression of a bracketed group from left to right. A run of
+	 * terms joined by the same conjunction or disjunction is collected into one
+	 * list rather than copying the construction for every new term, giving the
+	 * same expression as combining the terms one at a time
+	 */
 
-			if (string.charAt(i) == ' ' || string.charAt(i) == '-') {
-				i++;
-			} else if (string.charAt(i) == '0') {
-				cnf.add(clause);
-				clause = new HashSet<>();
-				i++;
-			} else {
+	private static class ExpressionBuilder {
 
-				Integer y = new Integer(Integer.parseInt(string.substring(i, i + 1)));
+		private LogicExpression result;
+		private ArrayList<LogicExpression> run;
+		private Terminal runConnective;
 
-				boolean negated = false;
+		private int negations;
+		private Terminal connective;
 
-				try {
-					if (string.charAt(i - 1) == '-') {
-						negated = true;
-					}
-				} catch (StringIndexOutOfBoundsException e) {
-				}
+		/**
+		 * Combine the expression so far with another term
+		 * 
+		 * @param term
+		 *            the term
+		 * @param terminal
+		 *            the connective joining them
+		 */
 
-				if (!legend.containsKey(y)) {
-					legend.put(y, new Atom("X" + y));
-				}
+		void add(LogicExpression term, Terminal terminal) {
+
+			if (run != null && terminal == runConnective) {
 
-				if (negated) {
-					clause.add(LogicMethods.negate(legend.get(y)));
+				// the same as LogicMethods.combine on an unnegated construction
+				// of this connective
+				if (term.getType() == ExpressionType.CONSTRUCTION && term.getTerminal() == terminal
+						&& term.getNegations() == 0) {
+					run.addAll(term.getTerms());
 				} else {
-					clause.add(legend.get(y));
+					run.add(term);
 				}
 
-				i++;
+				return;
+			}
 
+			LogicExpression current = build();
+
+			if (current == null) {
+				result = term;
+				return;
 			}
 
+			result = LogicMethods.combine(current, term, terminal);
+
+			if ((terminal == Terminal.AND || terminal == Terminal.OR) && result.getTerminal() == terminal
+					&& result.getNegations() == 0) {
+				run = new ArrayList<>(result.getTerms());
+				runConnective = terminal;
+				result = null;
+			}
 		}
-		
-		return new ClauseNormalForm(cnf);
+
+		/**
+		 * Get the expression built so far
+		 * 
+		 * @return the expression, or null if no terms have been added
+		 */
+
+		LogicExpression build() {
+
+			if (run != null) {
+				result = ExpressionFactory.construction(run, runConnective);
+				run = null;
+				runConnective = null;
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * Convert a string of DIMACS into a clause normal form
+	 * @param string the string of DIMACS
+	 * @return the clause normal form from that string
+	 */
+	
+	public static ClauseNormalForm convertDIMACS(String string) {
+
+		VariableTable table = new VariableTable();
+		ClauseArena arena = null;
+
+		try {
+			ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(string.getBytes()));
+			arena = new DimacsReader(channel).read(table);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+
+		return arena.toClauseNormalForm(table);
 
 	}
 
@@ -0,0 +1,83 @@
+package reasoning;
+
+/**
+ * A dynamic restart policy in the style of Glucose: the solver restarts when
+ * the average literal block distance of recently learned clauses is high
+ * compared to the average over the whole search, meaning the current
+ * assignment is producing poor clauses
+ * 
+ * @author George Kaye
+ *
+ */
+
+public class GlucoseRestarts implements RestartPolicy {
+
+	private int[] recent;
+	private int recentCount;
+	private int recentNext;
+	private long recentSum;
+
+	private long totalSum;
+	private long totalCount;
+
+	private double margin;
+
+	/**
+	 * Create a new Glucose restart policy over the last 50 conflicts with a
+	 * margin of 0.8
+	 */
+
+	public GlucoseRestarts() {
+		this(50, 0.8);
+	}
+
+	/**
+	 * Create a new Glucose restart policy
+	 * 
+	 * @param window
+	 *            the number of recent conflicts to average
+	 * @param margin
+	 *            restart when the recent average multiplied by this exceeds
+	 *            the overall average
+	 */
+
+	public GlucoseRestarts(int window, double margin) {
+		this.recent = new int[window];
+		this.margin = margin;
+	}
+
+	@Override
+	public void conflict(int lbd) {
+
+		if (recentCount == recent.length) {
+			recentSum -= recent[recentNext];
+		} else {
+			recentCount++;
+		}
+
+		recent[recentNext] = lbd;
+		recentNext = (recentNext + 1) % recent.length;
+		recentSum += lbd;
+
+		totalSum += lbd;
+		totalCount++;
+	}
+
+	@Override
+	public boolean shouldRestart() {
+
+		if (recentCount < recent.length) {
+			return false;
+		}
+
+		return ((double) recentSum / recentCount) * margin > (double) totalSum / totalCount;
+	}
+
+	@Override
+	public void restarted() {
+		recentCount = 0;
+		recentNext = 0;
+		recentSum = 0;
+	}
+
+}
@@ -0,0 +1,153 @@
+package reasoning;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints
+ *
+ * @author George Kaye
+ *
+ */
+
+public class IntList {
+
+	private int[] data;
+	private int size;
+
+	/**
+	 * Create a new (empty) list
+	 */
+
+	public IntList() {
+		this(4);
+	}
+
+	/**
+	 * Create a new list with an initial capacity
+	 *
+	 * @param capacity
+	 *            the initial capacity
+	 */
+
+	public IntList(int capacity) {
+		this.data = new int[Math.max(capacity, 1)];
+		this.size = 0;
+	}
+
+	/**
+	 * Add an int to the end of the list
+	 *
+	 * @param value
+	 *            the int to add
+	 */
+
+	public void add(int value) {
+
+		if (size == data.length) {
+			data = Arrays.copyOf(data, data.length * 2);
+		}
+
+		data[size] = value;
+		size++;
+	}
+
+	/**
+	 * Get an int from the list
+	 *
+	 * @param i
+	 *            the index
+	 * @return the int at that index
+	 */
+
+	public int get(int i) {
+		return data[i];
+	}
+
+	/**
+	 * Replace an int in the list
+	 *
+	 * @param i
+	 *            the index
+	 * @param value
+	 *            the new int
+	 */
+
+	public void set(int i, int value) {
+		data[i] = value;
+	}
+
+	/**
+	 * Get the last int in the list
+	 *
+	 * @return the last int
+	 */
+
+	public int last() {
+		return data[size - 1];
+	}
+
+	/**
+	 * Remove and return the last int in the list
+	 *
+	 * @return the last int
+	 */
+
+	public int pop() {
+		size--;
+		return data[size];
+	}
+
+	/**
+	 * Get the number of ints in the list
+	 *
+	 * @return the size of the list
+	 */
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Find out if the list is empty
+	 *
+	 * @return whether the list is empty
+	 */
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Shrink the list to a given size, discarding the ints past it
+	 *
+	 * @param newSize
+	 *            the new size
+	 */
+
+	public void shrink(int newSize) {
+		size = newSize;
+	}
+
+	/**
+	 * Remove every int from the list
+	 */
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Copy the contents of the list into an array
+	 *
+	 * @return the array
+	 */
+
+	public int[] toArray() {
+		return Arrays.copyOf(data, size);
+	}
+
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+
+}
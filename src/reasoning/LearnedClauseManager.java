@@ -0,0 +1,249 @@
+package reasoning;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.function.IntPredicate;
+
+/**
+ * Keeps track of the clauses a CDCL solver has learned, scoring them by their
+ * literal block distance and activity and periodically deleting the worst
+ * half so that the clause database stays bounded
+ * 
+ * @author George Kaye
+ *
+ */
+
+public class LearnedClauseManager {
+
+	private static final float RESCALE_LIMIT = 1e20f;
+
+	private ClauseArena arena;
+	private IntList learnts;
+
+	private float increment;
+	private float decay;
+
+	private int glue;
+	private long interval;
+	private long increase;
+	private long conflictsUntilReduction;
+
+	private long learned;
+	private long deleted;
+	private long reductions;
+
+	/**
+	 * Create a new manager, first reducing after 2000 conflicts and then every
+	 * 300 conflicts more than the last time, keeping clauses with a literal
+	 * block distance of at most 2
+	 * 
+	 * @param arena
+	 *            the clause arena the learned clauses are stored in
+	 */
+
+	public LearnedClauseManager(ClauseArena arena) {
+		this(arena, 2000, 300, 2);
+	}
+
+	/**
+	 * Create a new manager
+	 * 
+	 * @param arena
+	 *            the clause arena the learned clauses are stored in
+	 * @param interval
+	 *            the number of conflicts before the first reduction
+	 * @param increase
+	 *            how much longer each interval is than the previous one
+	 * @param glue
+	 *            clauses with a literal block distance of at most this are
+	 *            never deleted
+	 */
+
+	public LearnedClauseManager(ClauseArena arena, long interval, long increase, int glue) {
+
+		this.arena = arena;
+		this.learnts = new IntList();
+
+		this.increment = 1;
+		this.decay = 0.999f;
+
+		this.glue = glue;
+		this.interval = interval;
+		this.increase = increase;
+		this.conflictsUntilReduction = interval;
+	}
+
+	/**
+	 * Start managing a learned clause
+	 * 
+	 * @param offset
+	 *            the offset of the clause
+	 * @param lbd
+	 *            the literal block distance of the clause
+	 */
+
+	public void add(int offset, int lbd) {
+
+		arena.setLBD(offset, lbd);
+		arena.setActivity(offset, increment);
+		learnts.add(offset);
+		learned++;
+	}
+
+	/**
+	 * Increase the activity of a learned clause involved in a conflict
+	 * 
+	 * @param offset
+	 *            the offset of the clause
+	 */
+
+	public void bump(int offset) {
+
+		float activity = arena.getActivity(offset) + increment;
+		arena.setActivity(offset, activity);
+
+		if (activity > RESCALE_LIMIT) {
+
+			// scale everything down to stop the activities overflowing
+			for (int i = 0; i < learnts.size(); i++) {
+				int learnt = learnts.get(i);
+				arena.setActivity(learnt, arena.getActivity(learnt) / RESCALE_LIMIT);
+			}
+
+			increment /= RESCALE_LIMIT;
+		}
+	}
+
+	/**
+	 * Notify the manager that a conflict has been analysed
+	 */
+
+	public void conflict() {
+		increment /= decay;
+		conflictsUntilReduction--;
+	}
+
+	/**
+	 * Find out if enough conflicts have happened to reduce the database
+	 * 
+	 * @return whether to reduce
+	 */
+
+	public boolean shouldReduce() {
+		return conflictsUntilReduction <= 0;
+	}
+
+	/**
+	 * Delete the worst half of the learned clauses, ordered by literal block
+	 * distance and then activity. Glue clauses and clauses which are the reason
+	 * for an assignment are never deleted. The arena is not compacted
+	 * 
+	 * @param locked
+	 *            tells if a clause is the reason for an assignment
+	 * @return the number of clauses deleted
+	 */
+
+	public int reduce(IntPredicate locked) {
+
+		ArrayList<Integer> candidates = new ArrayList<>();
+
+		for (int i = 0; i < learnts.size(); i++) {
+			candidates.add(learnts.get(i));
+		}
+
+		// worst clauses first
+		Collections.sort(candidates, (a, b) -> {
+
+			if (arena.getLBD(a) != arena.getLBD(b)) {
+				return Integer.compare(arena.getLBD(b), arena.getLBD(a));
+			}
+
+			return Float.compare(arena.getActivity(a), arena.getActivity(b));
+		});
+
+		int removed = 0;
+
+		for (int i = 0; i < candidates.size() / 2; i++) {
+
+			int offset = candidates.get(i);
+
+			if (arena.getLBD(offset) > glue && arena.size(offset) > 2 && !locked.test(offset)) {
+				arena.delete(offset);
+				removed++;
+			}
+		}
+
+		int j = 0;
+
+		for (int i = 0; i < learnts.size(); i++) {
+			if (!arena.hasFlag(learnts.get(i), ClauseArena.DELETED)) {
+				learnts.set(j, learnts.get(i));
+				j++;
+			}
+		}
+
+		learnts.shrink(j);
+
+		deleted += removed;
+		reductions++;
+		interval += increase;
+		conflictsUntilReduction = interval;
+
+		return removed;
+	}
+
+	/**
+	 * Update the offsets of the learned clauses after the arena was compacted
+	 * 
+	 * @param relocation
+	 *            where the clauses moved to
+	 */
+
+	public void relocate(ClauseRelocation relocation) {
+
+		for (int i = 0; i < learnts.size(); i++) {
+			learnts.set(i, relocation.relocate(learnts.get(i)));
+		}
+	}
+
+	/**
+	 * Get the number of learned clauses currently kept
+	 * 
+	 * @return the number of learned clauses
+	 */
+
+	public int size() {
+		return learnts.size();
+	}
+
+	/**
+	 * Get the number of clauses learned in total
+	 * 
+	 * @return the number of clauses learned
+	 */
+
+	public long getLearned() {
+		return learned;
+	}
+
+	/**
+	 * Get the number of learned clauses deleted in total
+	 * 
+	 * @return the number of clauses deleted
+	 */
+
+	public long getDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * Get the number of times the database has been reduced
+	 * 
+	 * @return the number of reductions
+	 */
+
+	public long getReductions() {
+		return reductions;
+	}
+
+}
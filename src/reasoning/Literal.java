@@ -0,0 +1,110 @@
+package reasoning;
+
+/**
+ * Methods to manipulate literals encoded as a single int. The variable index
+ * is stored in the upper bits and the sign in the lowest bit, so the literal
+ * of variable v is 2v and its negation is 2v + 1
+ *
+ * @author George Kaye
+ *
+ */
+
+public final class Literal {
+
+	/**
+	 * Value used to represent the absence of a literal
+	 */
+
+	public static final int UNDEFINED = -1;
+
+	private Literal() {
+	}
+
+	/**
+	 * Create a literal from a variable and a sign
+	 *
+	 * @param variable
+	 *            the variable index
+	 * @param negated
+	 *            whether the literal is negated
+	 * @return the literal
+	 */
+
+	public static int make(int variable, boolean negated) {
+		return (variable << 1) | (negated ? 1 : 0);
+	}
+
+	/**
+	 * Get the variable index of a literal
+	 *
+	 * @param literal
+	 *            the literal
+	 * @return the variable index
+	 */
+
+	public static int variable(int literal) {
+		return literal >>> 1;
+	}
+
+	/**
+	 * Find out if a literal is negated
+	 *
+	 * @param literal
+	 *            the literal
+	 * @return whether the literal is negated
+	 */
+
+	public static boolean isNegated(int literal) {
+		return (literal & 1) == 1;
+	}
+
+	/**
+	 * Get the complement of a literal
+	 *
+	 * @param literal
+	 *            the literal
+	 * @return the complementing literal
+	 */
+
+	public static int negate(int literal) {
+		return literal ^ 1;
+	}
+
+	/**
+	 * Convert a literal to its DIMACS representation (variables start at 1,
+	 * negative numbers are negated literals)
+	 *
+	 * @param literal
+	 *            the literal
+	 * @return the DIMACS integer
+	 */
+
+	public static int toDIMACS(int literal) {
+
+		int number = variable(literal) + 1;
+
+		if (isNegated(literal)) {
+			return -number;
+		}
+
+		return number;
+	}
+
+	/**
+	 * Convert a DIMACS integer into a literal
+	 *
+	 * @param number
+	 *            the DIMACS integer (must not be 0)
+	 * @return the literal
+	 */
+
+	public static int fromDIMACS(int number) {
+
+		if (number < 0) {
+			return make(-number - 1, true);
+		}
+
+		return make(number - 1, false);
+	}
+
+}
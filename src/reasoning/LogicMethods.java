@@ -1,10 +1,10 @@
 package reasoning;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
 
 import reasoning.LogicExpression.ExpressionType;
 
@@ -17,6 +17,17 @@ import reasoning.LogicExpression.ExpressionType;
 
 public class LogicMethods {
 
+	/**
+	 * The most subexpressions whose conjunctive normal form is remembered
+	 */
+
+	public static final int TRANSFORM_CACHE_SIZE = 1 << 16;
+
+	// each thread has its own, so that threads transforming different
+	// expressions do not wait for each other
+	private static ThreadLocal<ExpressionCache> transformCache = ThreadLocal
+			.withInitial(() -> new ExpressionCache(TRANSFORM_CACHE_SIZE));
+
 	/**
 	 * Return the negation of an expression
 	 * 
@@ -31,9 +42,9 @@ public class LogicMethods {
 
 		switch (exp.getType()) {
 		case ATOM:
-			return new Atom(exp.getName(), negs + 1);
+			return ExpressionFactory.atom(exp.getName(), negs + 1);
 		case CONSTRUCTION:
-			return new Construction(exp.getTerms(), exp.getTerminal(), negs + 1);
+			return ExpressionFactory.construction(exp.getTerms(), exp.getTerminal(), negs + 1);
 		default:
 			return exp;
 		}
@@ -119,12 +130,13 @@ public class LogicMethods {
 
 		}
 
-		return new Construction(terms, terminal);
+		return ExpressionFactory.construction(terms, terminal);
 
 	}
 
 	/**
-	 * Performs double negative elimination on an expression
+	 * Performs double negative elimination on an expression, removing every
+	 * pair of negations
 	 * 
 	 * @param exp
 	 *            the input expression
@@ -135,13 +147,13 @@ public class LogicMethods {
 
 		int negs = exp.getNegations();
 
-		if (negs % 2 == 0) {
+		if (negs > 1) {
 
 			switch (exp.getType()) {
 			case ATOM:
-				return new Atom(exp.getName(), negs - 2);
+				return ExpressionFactory.atom(exp.getName(), negs % 2);
 			case CONSTRUCTION:
-				return new Construction(exp.getTerms(), exp.getTerminal(), negs - 2);
+				return ExpressionFactory.construction(exp.getTerms(), exp.getTerminal(), negs % 2);
 			default:
 				return null;
 			}
@@ -164,9 +176,9 @@ public class LogicMethods {
 
 		switch (exp.getTerminal()) {
 		case AND:
-			return new Construction(negate(exp.getTerms()), Terminal.OR);
+			return ExpressionFactory.construction(negate(exp.getTerms()), Terminal.OR);
 		case OR:
-			return new Construction(negate(exp.getTerms()), Terminal.AND);
+			return ExpressionFactory.construction(negate(exp.getTerms()), Terminal.AND);
 		default:
 			return exp;
 		}
@@ -193,7 +205,7 @@ public class LogicMethods {
 		newTerms.add(negate(left));
 		newTerms.add(right);
 
-		return new Construction(newTerms, Terminal.OR, exp.getNegations());
+		return ExpressionFactory.construction(newTerms, Terminal.OR, exp.getNegations());
 
 	}
 
@@ -222,10 +234,10 @@ public class LogicMethods {
 		rhs.add(right);
 		rhs.add(left);
 
-		newTerms.add(new Construction(lhs, Terminal.IMPLICATION));
-		newTerms.add(new Construction(rhs, Terminal.IMPLICATION));
+		newTerms.add(ExpressionFactory.construction(lhs, Terminal.IMPLICATION));
+		newTerms.add(ExpressionFactory.construction(rhs, Terminal.IMPLICATION));
 
-		return new Construction(newTerms, Terminal.AND, exp.getNegations());
+		return ExpressionFactory.construction(newTerms, Terminal.AND, exp.getNegations());
 	}
 
 	/**
@@ -240,12 +252,35 @@ public class LogicMethods {
 
 	public static boolean isNegated(LogicExpression exp1, LogicExpression exp2) {
 
-		if (exp1.toString().equals(Terminal.NOT.toString() + exp2.toString())
-				|| exp2.toString().equals(Terminal.NOT.toString() + exp1.toString())) {
-			return true;
+		// one expression must have exactly one more negation than the other
+		int difference = exp1.getNegations() - exp2.getNegations();
+
+		if ((difference != 1 && difference != -1) || exp1.getType() != exp2.getType()) {
+			return false;
 		}
 
-		return false;
+		switch (exp1.getType()) {
+		case ATOM:
+			return exp1.getName().equals(exp2.getName());
+		case CONSTRUCTION:
+			return exp1.getTerminal() == exp2.getTerminal() && exp1.getTerms().equals(exp2.getTerms());
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Is one literal a negation of another?
+	 *
+	 * @param literal1
+	 *            the first literal
+	 * @param literal2
+	 *            the second literal
+	 * @return whether they are negated
+	 */
+
+	public static boolean isNegated(int literal1, int literal2) {
+		return literal1 == Literal.negate(literal2);
 	}
 
 	/**
@@ -263,13 +298,28 @@ public class LogicMethods {
 
 		if (TheoremProver.debug) {
 			System.out.println("Conjunctive Normal Form: " + exp);
+			System.out.println("Transformation cache: " + getTransformCache());
 		}
 
-		return findClauses(exp.toString());
+		return findClauses(exp);
 	}
 
 	/**
-	 * Transform an expression into conjunctive normal form
+	 * Get the cache of subexpressions already transformed into conjunctive
+	 * normal form by the current thread
+	 * 
+	 * @return the cache
+	 */
+
+	public static ExpressionCache getTransformCache() {
+		return transformCache.get();
+	}
+
+	/**
+	 * Transform an expression into conjunctive normal form. Each distinct
+	 * subexpression is only transformed once while it stays in the cache. The
+	 * subexpressions still being transformed are kept on an explicit stack, so
+	 * arbitrarily deep expressions can be transformed
 	 * 
 	 * @param exp
 	 *            the expression
@@ -281,265 +331,321 @@ public class LogicMethods {
 		// algorithm adapted from
 		// https://www.cs.jhu.edu/~jason/tutorials/convert-to-CNF.html
 
-		// dne
-		if (exp.getNegations() % 2 == 0 && exp.getNegations() > 1) {
-			exp = dne(exp);
-		}
+		ExpressionCache cache = transformCache.get();
+		LogicExpression result = lookupTransform(exp, cache);
 
-		// single atom
-		if (exp.getType() == ExpressionType.ATOM) {
-			return exp;
+		if (result != null) {
+			return result;
 		}
 
-		// implication
-		if (exp.getTerminal() == Terminal.IMPLICATION) {
-			return transform(implication(exp));
-		}
+		ArrayDeque<TransformFrame> stack = new ArrayDeque<>();
+		stack.push(new TransformFrame(exp));
 
-		// equivalence
-		if (exp.getTerminal() == Terminal.EQUIVALENCE) {
-			return transform(equivalence(exp));
-		}
+		while (true) {
 
-		// negations
-		if (exp.getNegations() == 1) {
-			return transform(deMorgans(exp));
-		}
+			TransformFrame frame = stack.peek();
+			ArrayList<LogicExpression> terms = frame.node.getTerms();
 
-		// conjunction
-		if (exp.getTerminal() == Terminal.AND) {
+			if (frame.next < terms.size()) {
 
-			ArrayList<LogicExpression> terms = exp.getTerms();
-			LogicExpression result = null;
+				// transform the next term, or start on it if it is not known
+				LogicExpression term = terms.get(frame.next);
+				frame.next++;
 
-			// convert all subexpressions to cnf, then combine them with
-			// conjunctions
-			for (LogicExpression term : terms) {
+				LogicExpression transformed = lookupTransform(term, cache);
 
-				try {
-					result = combine(result, transform(term), Terminal.AND);
-				} catch (NullPointerException e) {
-					result = transform(term);
+				if (transformed != null) {
+					frame.add(transformed);
+				} else {
+					stack.push(new TransformFrame(term));
 				}
-			}
-
-			return result;
-		}
 
-		// disjunction
-		if (exp.getTerminal() == Terminal.OR) {
+			} else {
 
-			ArrayList<LogicExpression> terms = exp.getTerms();
-			LogicExpression result = null;
+				stack.pop();
+				cache.put(frame.exp, frame.result);
 
-			// convert all subexpressions to cnf, then combine them with
-			// disjunctions
-			for (LogicExpression term : terms) {
+				if (frame.node != frame.exp) {
+					cache.put(frame.node, frame.result);
+				}
 
-				try {
-					result = combine(result, transform(term), Terminal.OR);
-				} catch (NullPointerException e) {
-					result = transform(term);
+				if (stack.isEmpty()) {
+					return frame.result;
 				}
+
+				stack.peek().add(frame.result);
 			}
+		}
+	}
 
-			ArrayList<LogicExpression> newTerms = result.getTerms();
+	/**
+	 * Find the conjunctive normal form of an expression without transforming
+	 * any of its terms
+	 * 
+	 * @param exp
+	 *            the expression
+	 * @param cache
+	 *            the cache of the current thread
+	 * @return the conjunctive normal form if the expression is a literal or is
+	 *         in the cache, otherwise null
+	 */
 
-			// converting a set of conjunctions connected by disjunctions to a
-			// set of disjunctions connected by conjunctions
-			for (int i = 0; i < result.getSize() - 1; i = i++) {
+	private static LogicExpression lookupTransform(LogicExpression exp, ExpressionCache cache) {
 
-				ArrayList<LogicExpression> finalTerms = new ArrayList<>();
+		// literals are already in conjunctive normal form
+		if (exp.getType() == ExpressionType.ATOM && exp.getNegations() <= 1) {
+			return exp;
+		}
 
-				LogicExpression expa = newTerms.get(0);
-				LogicExpression expb = newTerms.get(1);
+		LogicExpression result = cache.get(ExpressionFactory.intern(exp));
 
-				ArrayList<LogicExpression> a = expa.getTerms();
-				ArrayList<LogicExpression> b = expb.getTerms();
+		if (result == null) {
 
-				for (LogicExpression ai : a) {
-					for (LogicExpression bi : b) {
+			LogicExpression node = rewrite(exp);
 
-						LogicExpression ci = combine(ai, bi, Terminal.OR);
-						finalTerms.add(ci);
+			if (node.getType() == ExpressionType.ATOM) {
+				return node;
+			}
 
-					}
-				}
+			if (node != exp) {
+				result = cache.get(node);
+			}
+		}
 
-				newTerms.remove(expa);
-				newTerms.remove(expb);
+		return result;
+	}
 
-				LogicExpression nextResult = new Construction(finalTerms, Terminal.AND);
+	/**
+	 * Rewrite an expression until it is a literal or an unnegated conjunction
+	 * or disjunction, using double negative elimination, De Morgan's law and
+	 * the definitions of implication and equivalence
+	 * 
+	 * @param exp
+	 *            the expression
+	 * @return the rewritten expression
+	 */
+
+	private static LogicExpression rewrite(LogicExpression exp) {
+
+		exp = ExpressionFactory.intern(exp);
 
-				newTerms.add(0, nextResult);
+		while (true) {
 
+			// dne
+			if (exp.getNegations() > 1) {
+				exp = dne(exp);
 			}
 
-			return result;
+			if (exp.getType() == ExpressionType.ATOM) {
+				return exp;
+			}
 
+			if (exp.getTerminal() == Terminal.IMPLICATION) {
+				exp = implication(exp);
+			} else if (exp.getTerminal() == Terminal.EQUIVALENCE) {
+				exp = equivalence(exp);
+			} else if (exp.getNegations() == 1) {
+				exp = deMorgans(exp);
+			} else {
+				return exp;
+			}
 		}
-
-		return null;
 	}
 
 	/**
-	 * Convert a string of an expression into clause normal form
-	 * 
-	 * @param expression
-	 * @return
+	 * A conjunction or disjunction whose terms are being transformed into
+	 * conjunctive normal form
 	 */
 
-	public static ClauseNormalForm findClauses(String expression) {
-
-		HashSet<HashSet<LogicExpression>> cnf = new HashSet<>();
-		HashSet<LogicExpression> currentClause = new HashSet<>();
+	private static class TransformFrame {
 
-		Pattern literals = Pattern.compile("[A-Z]+[0-9]*");
-		Pattern terminals = Pattern.compile("&|\\||->|<->");
-		Matcher matcher = null;
+		private final LogicExpression exp;
+		private final LogicExpression node;
+		private int next;
+		private LogicExpression result;
 
-		int i = 0;
+		TransformFrame(LogicExpression exp) {
+			this.exp = ExpressionFactory.intern(exp);
+			this.node = rewrite(exp);
+			this.next = 0;
+			this.result = null;
+		}
 
-		while (i < expression.length()) {
+		/**
+		 * Add the conjunctive normal form of the next term, combining it with
+		 * those of the terms before it
+		 * 
+		 * @param term
+		 *            the conjunctive normal form of the term
+		 */
 
-			int literalStart = expression.length();
-			int literalEnd = expression.length();
-			int terminalStart = expression.length();
+		void add(LogicExpression term) {
 
-			try {
-				matcher = literals.matcher(expression.substring(i));
-				matcher.find();
-				literalStart = matcher.start() + i;
-				literalEnd = matcher.end() + i;
-			} catch (IllegalStateException e) {
+			if (result == null) {
+				result = term;
+			} else if (node.getTerminal() == Terminal.AND) {
+				result = combine(result, term, Terminal.AND);
+			} else {
+				// distribute the disjunction over the conjunctions
+				result = distribute(result, term);
 			}
+		}
+	}
+
+	/**
+	 * Convert the disjunction of two expressions in conjunctive normal form
+	 * into a set of disjunctions connected by conjunctions
+	 * 
+	 * @param exp1
+	 *            the first expression
+	 * @param exp2
+	 *            the second expression
+	 * @return the expression in conjunctive normal form
+	 */
+
+	private static LogicExpression distribute(LogicExpression exp1, LogicExpression exp2) {
+
+		ArrayList<LogicExpression> a = new ArrayList<>();
+		ArrayList<LogicExpression> b = new ArrayList<>();
 
-			try {
-				matcher = terminals.matcher(expression.substring(i));
-				matcher.find();
-				terminalStart = matcher.start() + i;
-			} catch (IllegalStateException e) {
+		conjuncts(exp1, a);
+		conjuncts(exp2, b);
+
+		ArrayList<LogicExpression> terms = new ArrayList<>();
+
+		for (LogicExpression ai : a) {
+			for (LogicExpression bi : b) {
+				terms.add(combine(ai, bi, Terminal.OR));
 			}
+		}
 
-			if (literalStart < terminalStart) {
+		if (terms.size() == 1) {
+			return terms.get(0);
+		}
 
-				i = literalStart;
-				LogicExpression newTerm = new Atom(expression.substring(literalStart, literalEnd));
+		return ExpressionFactory.construction(terms, Terminal.AND);
+	}
 
-				try {
-					if (expression.charAt(literalStart - 1) == '-') {
-						newTerm = LogicMethods.negate(newTerm);
-					}
-				} catch (StringIndexOutOfBoundsException e) {
+	/**
+	 * Collect the clauses of an expression in conjunctive normal form,
+	 * flattening nested conjunctions
+	 * 
+	 * @param exp
+	 *            the expression
+	 * @param conjuncts
+	 *            the list to add the clauses to
+	 */
 
-				}
+	private static void conjuncts(LogicExpression exp, ArrayList<LogicExpression> conjuncts) {
+
+		ArrayDeque<LogicExpression> stack = new ArrayDeque<>();
+		stack.push(exp);
+
+		while (!stack.isEmpty()) {
 
-				currentClause.add(newTerm);
-				i = literalEnd;
+			LogicExpression next = stack.pop();
 
-			} else if (literalStart > terminalStart) {
+			if (next.getType() == ExpressionType.CONSTRUCTION && next.getTerminal() == Terminal.AND
+					&& next.getNegations() == 0) {
 
-				i = terminalStart;
+				ArrayList<LogicExpression> terms = next.getTerms();
 
-				if (expression.charAt(i) == '|') {
-					i++;
-				} else if (expression.charAt(i) == '&') {
-					cnf.add(currentClause);
-					currentClause = new HashSet<>();
-					i++;
+				for (int i = terms.size() - 1; i >= 0; i--) {
+					stack.push(terms.get(i));
 				}
 
 			} else {
-				i++;
+				conjuncts.add(next);
 			}
 		}
-
-		cnf.add(currentClause);
-
-		return new ClauseNormalForm(cnf);
-
 	}
 
 	/**
-	 * Perform a resolution proof
+	 * Collect the clauses of an expression in conjunctive normal form, leaving
+	 * out repeated literals and clauses containing a literal and its negation
 	 * 
-	 * @param cnf
-	 *            the clause normal form
+	 * @param exp
+	 *            the expression in conjunctive normal form
+	 * @return the clause normal form
 	 */
 
-	@SuppressWarnings("unchecked") // types will always be correct
-	public static ResolutionProof resolutionProof(ClauseNormalForm cnf) {
+	public static ClauseNormalForm findClauses(LogicExpression exp) {
 
-		boolean box = false;
-		boolean same = false;
+		HashSet<HashSet<LogicExpression>> cnf = new HashSet<>();
 
-		HashSet<HashSet<LogicExpression>> resolved = new HashSet<>();
-		ResolutionProof proof = new ResolutionProof();
+		ArrayList<LogicExpression> clauses = new ArrayList<>();
+		conjuncts(exp, clauses);
 
-		for (HashSet<LogicExpression> clause : cnf.getCNF()) {
-			proof.addLine(new ProofLine(clause, ""));
-		}
+		ArrayDeque<LogicExpression> stack = new ArrayDeque<>();
 
-		// while the two terminating conditions do not hold
-		while (!box && !same) {
+		for (LogicExpression clause : clauses) {
 
-			ComplementingPair pair = cnf.findUnresolvedPair(resolved);
+			HashSet<LogicExpression> currentClause = new HashSet<>();
+			boolean tautology = false;
 
-			// if there are no complementing pairs we cannot resolve any further
-			if (pair != null) {
+			stack.push(clause);
 
-				String resolvents = "";
+			while (!stack.isEmpty()) {
 
-				resolved.add((HashSet<LogicExpression>) pair.getFirst().clone());
-				resolved.add((HashSet<LogicExpression>) pair.getSecond().clone());
+				LogicExpression next = stack.pop();
 
-				HashSet<LogicExpression> c1 = (HashSet<LogicExpression>) pair.getFirst().clone();
-				HashSet<LogicExpression> c2 = (HashSet<LogicExpression>) pair.getSecond().clone();
+				if (next.getType() == ExpressionType.CONSTRUCTION) {
 
-				LogicExpression a = null;
-				LogicExpression b = null;
+					if (next.getTerminal() != Terminal.OR || next.getNegations() != 0) {
+						throw new IllegalArgumentException("Not in conjunctive normal form: " + next);
+					}
 
-				for (LogicExpression exp : c1) {
+					for (LogicExpression term : next.getTerms()) {
+						stack.push(term);
+					}
 
-					for (LogicExpression exp1 : c2) {
+					continue;
+				}
 
-						if (LogicMethods.isNegated(exp, exp1)) {
+				LogicExpression literal = ExpressionFactory.atom(next.getName(), next.getNegations() % 2);
 
-							resolvents = "Res " + proof.getLine(c1) + ", " + proof.getLine(c2);
+				if (currentClause.contains(ExpressionFactory.atom(next.getName(), 1 - literal.getNegations()))) {
+					tautology = true;
+				}
 
-							a = exp;
-							b = exp1;
+				currentClause.add(literal);
+			}
 
-							break;
-						}
-					}
+			if (!tautology) {
+				cnf.add(currentClause);
+			}
+		}
 
-				}
+		return new ClauseNormalForm(cnf);
 
-				c1.remove(a);
-				c2.remove(b);
+	}
 
-				HashSet<LogicExpression> c = new HashSet<>();
-				c.addAll(c1);
-				c.addAll(c2);
+	/**
+	 * Perform a resolution proof
+	 * 
+	 * @param cnf
+	 *            the clause normal form
+	 */
 
-				if (!cnf.getCNF().contains(c)) {
-					proof.addLine(new ProofLine(c, resolvents));
-					cnf.add(c);
-				}
+	public static ResolutionProof resolutionProof(ClauseNormalForm cnf) {
+		return resolutionProof(new ResolutionProver(cnf));
+	}
 
-				// if there is no resolvent we have a contradiction!
-				if (c.isEmpty()) {
-					box = true;
-					proof.setResult(Result.UNSATISFIABLE);
+	/**
+	 * Perform a resolution proof with a configured prover
+	 * 
+	 * @param prover
+	 *            the prover
+	 */
 
-				}
+	public static ResolutionProof resolutionProof(ResolutionProver prover) {
 
-			} else {
-				same = true;
-				proof.setResult(Result.SATISFIABLE);
-			}
+		ResolutionProof proof = prover.prove();
 
+		if (TheoremProver.debug) {
+			System.out.println("Resolution: " + prover.getClauses() + " clauses, " + prover.getResolvents()
+					+ " resolvents, " + prover.getForwardSubsumed() + " forward subsumed, "
+					+ prover.getBackwardSubsumed() + " backward subsumed");
 		}
 
 		return proof;
@@ -550,10 +656,15 @@ public class LogicMethods {
 	 * Perform DPLL on a clause normal form, returning a model if one exists of null if one does not
 	 * @param cnf the clause normal form
 	 * @return the model, or null if there is not one
+	 * @throws CancellationException if the thread is interrupted before the search finishes
 	 */
 	
 	public static LogicModel davisPutnam(ClauseNormalForm cnf) {
 
+		if (Thread.currentThread().isInterrupted()) {
+			throw new CancellationException("Search interrupted");
+		}
+
 		HashSet<LogicExpression> atoms = cnf.getAtoms();
 
 		LogicModel model = new LogicModel();
@@ -656,7 +767,7 @@ public class LogicMethods {
 					}
 
 					HashSet<HashSet<LogicExpression>> cnfa = reduceCNF(atom, cnf1);
-					HashSet<HashSet<LogicExpression>> cnfb = reduceCNF(new Atom(atom.getName(), 1), cnf1);
+					HashSet<HashSet<LogicExpression>> cnfb = reduceCNF(ExpressionFactory.atom(atom.getName(), 1), cnf1);
 
 					// try to find a model with the atom as true
 					ClauseNormalForm reduced = new ClauseNormalForm(cnfa);
@@ -675,7 +786,7 @@ public class LogicMethods {
 								negations = 1;
 							}
 
-							cnf1 = reduceCNF(new Atom(entry.getKey().getName(), negations), cnf1);
+							cnf1 = reduceCNF(ExpressionFactory.atom(entry.getKey().getName(), negations), cnf1);
 						}
 
 						break;
@@ -700,7 +811,7 @@ public class LogicMethods {
 									negations = 1;
 								}
 
-								cnf1 = reduceCNF(new Atom(entry.getKey().getName(), negations), cnf1);
+								cnf1 = reduceCNF(ExpressionFactory.atom(entry.getKey().getName(), negations), cnf1);
 
 								break;
 							}
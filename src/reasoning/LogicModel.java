@@ -24,7 +24,8 @@ public class LogicModel {
 
 	public String toString() {
 
-		String result = "";
+		// a StringBuilder keeps this linear for the large models of DIMACS inputs
+		StringBuilder result = new StringBuilder();
 
 		for (Map.Entry<LogicExpression, Boolean> entry : model.entrySet()) {
 
@@ -34,7 +35,7 @@ public class LogicModel {
 				bool = "F";
 			}
 
-			result += "I(" + entry.getKey().getName() + ") = " + bool + ", ";
+			result.append("I(" + entry.getKey().getName() + ") = " + bool + ", ");
 
 		}
 
@@ -42,11 +43,9 @@ public class LogicModel {
 			return result.substring(0, result.length() - 2);
 		}
 
-		if(result.equals("")){
-			return "none";
-		}
-		
-		return result;
+		// only an empty clause set, such as that of a valid expression, is
+		// satisfied without assigning anything
+		return "every interpretation is a model";
 	}
 
 	/**
@@ -59,7 +58,7 @@ public class LogicModel {
 	 */
 
 	public void addAtom(LogicExpression exp, boolean polarity) {
-		model.put(new Atom(exp.getName()), polarity);
+		model.put(ExpressionFactory.atom(exp.getName()), polarity);
 	}
 	
 	/**
@@ -0,0 +1,409 @@
+package reasoning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Splits a set of clauses into cubes, partial assignments that together cover
+ * every assignment not already refuted, so that each cube can be solved on its
+ * own. The variable to split on is chosen by lookahead: both of its literals
+ * are assumed in turn and unit propagated, and the variable whose literals
+ * shorten the most clauses on both sides is chosen. A literal whose
+ * propagation leads to a conflict is a failed literal, and its complement is
+ * assumed instead
+ *
+ * @author George Kaye
+ *
+ */
+
+public class LookaheadSplitter {
+
+	private static final int CANDIDATES = 32;
+
+	private static final byte TRUE = 1;
+	private static final byte FALSE = -1;
+	private static final byte UNASSIGNED = 0;
+
+	private ClauseArena arena;
+	private int variables;
+
+	private IntList[] occurrences;
+	private int[] order;
+
+	private byte[] values;
+	private IntList trail;
+	private int propagationHead;
+	private int reduced;
+	private boolean unsatisfiable;
+
+	private ArrayList<int[]> cubes;
+	private long lookaheads;
+	private long failedLiterals;
+	private long refuted;
+
+	/**
+	 * Create a new splitter for the clauses in a clause arena
+	 *
+	 * @param arena
+	 *            the clause arena, which is not modified
+	 * @param table
+	 *            the table the literals were interned in
+	 */
+
+	public LookaheadSplitter(ClauseArena arena, VariableTable table) {
+
+		this.arena = arena;
+		this.variables = table.size();
+
+		this.occurrences = new IntList[2 * variables];
+
+		for (int i = 0; i < occurrences.length; i++) {
+			occurrences[i] = new IntList();
+		}
+
+		this.values = new byte[variables];
+		this.trail = new IntList(Math.max(variables, 1));
+		this.propagationHead = 0;
+		this.unsatisfiable = false;
+
+		IntList units = new IntList();
+
+		for (int offset = arena.first(); offset < arena.end(); offset = arena.next(offset)) {
+
+			if (arena.hasFlag(offset, ClauseArena.DELETED)) {
+				continue;
+			}
+
+			int size = arena.size(offset);
+
+			if (size == 0) {
+				unsatisfiable = true;
+			} else if (size == 1) {
+				units.add(arena.literal(offset, 0));
+			}
+
+			for (int i = 0; i < size; i++) {
+				occurrences[arena.literal(offset, i)].add(offset);
+			}
+		}
+
+		// the variables occurring most often are the first candidates
+		Integer[] sorted = new Integer[variables];
+
+		for (int i = 0; i < variables; i++) {
+			sorted[i] = i;
+		}
+
+		Arrays.sort(sorted, (a, b) -> Integer.compare(count(b), count(a)));
+
+		this.order = new int[variables];
+
+		for (int i = 0; i < variables; i++) {
+			order[i] = sorted[i];
+		}
+
+		for (int i = 0; i < units.size() && !unsatisfiable; i++) {
+			if (!assume(units.get(i))) {
+				unsatisfiable = true;
+			}
+		}
+	}
+
+	/**
+	 * Count the occurrences of a variable
+	 *
+	 * @param variable
+	 *            the variable
+	 * @return the number of clauses it occurs in, counting each literal
+	 */
+
+	private int count(int variable) {
+		return occurrences[Literal.make(variable, false)].size() + occurrences[Literal.make(variable, true)].size();
+	}
+
+	/**
+	 * Split the clauses into cubes
+	 *
+	 * @param depth
+	 *            the greatest number of decisions in a cube
+	 * @return the cubes, which are empty if the clauses are unsatisfiable
+	 */
+
+	public ArrayList<int[]> split(int depth) {
+
+		cubes = new ArrayList<>();
+
+		if (!unsatisfiable) {
+			split(new IntList(), depth);
+		}
+
+		return cubes;
+	}
+
+	/**
+	 * Split the clauses under the current assignment
+	 *
+	 * @param cube
+	 *            the decisions made so far
+	 * @param depth
+	 *            the number of decisions still allowed
+	 */
+
+	private void split(IntList cube, int depth) {
+
+		int mark = trail.size();
+		int best = -1;
+
+		while (depth > 0 && best == -1) {
+
+			long bestScore = -1;
+			boolean failed = false;
+			int candidates = 0;
+
+			for (int i = 0; i < variables && candidates < CANDIDATES && !failed; i++) {
+
+				int variable = order[i];
+
+				if (values[variable] != UNASSIGNED) {
+					continue;
+				}
+
+				candidates++;
+
+				int positive = lookahead(Literal.make(variable, false));
+				int negative = positive < 0 ? 0 : lookahead(Literal.make(variable, true));
+
+				if (positive < 0 || negative < 0) {
+
+					// the other literal is implied, which may fail in turn
+					failed = true;
+					failedLiterals++;
+
+					if (!assume(Literal.make(variable, positive < 0))) {
+						refuted++;
+						undo(mark);
+						return;
+					}
+
+				} else {
+
+					long score = 1024L * positive * negative + positive + negative;
+
+					if (score > bestScore) {
+						bestScore = score;
+						best = variable;
+					}
+				}
+			}
+
+			// with nothing left to decide the cube is complete
+			if (!failed && best == -1) {
+				break;
+			}
+
+			if (failed) {
+				best = -1;
+			}
+		}
+
+		if (best == -1) {
+			cubes.add(cube.toArray());
+			undo(mark);
+			return;
+		}
+
+		for (int phase = 0; phase < 2; phase++) {
+
+			int literal = Literal.make(best, phase == 1);
+			int before = trail.size();
+
+			cube.add(literal);
+
+			if (assume(literal)) {
+				split(cube, depth - 1);
+			} else {
+				refuted++;
+			}
+
+			undo(before);
+			cube.pop();
+		}
+
+		undo(mark);
+	}
+
+	/**
+	 * Measure how much assuming a literal shortens the clauses
+	 *
+	 * @param literal
+	 *            the literal
+	 * @return the number of clauses shortened without being satisfied, or -1
+	 *         if propagating the literal leads to a conflict
+	 */
+
+	private int lookahead(int literal) {
+
+		lookaheads++;
+
+		int mark = trail.size();
+
+		reduced = 0;
+
+		boolean consistent = assume(literal);
+
+		undo(mark);
+
+		return consistent ? reduced : -1;
+	}
+
+	/**
+	 * Assume a literal and propagate it
+	 *
+	 * @param literal
+	 *            the literal
+	 * @return false if propagation leads to a conflict, in which case the
+	 *         assignments stay on the trail
+	 */
+
+	private boolean assume(int literal) {
+
+		if (!enqueue(literal)) {
+			return false;
+		}
+
+		while (propagationHead < trail.size()) {
+
+			int falsified = Literal.negate(trail.get(propagationHead));
+			propagationHead++;
+
+			IntList clauses = occurrences[falsified];
+
+			for (int i = 0; i < clauses.size(); i++) {
+
+				int offset = clauses.get(i);
+				int size = arena.size(offset);
+				int unassigned = 0;
+				int last = Literal.UNDEFINED;
+				boolean satisfied = false;
+
+				for (int j = 0; j < size && !satisfied; j++) {
+
+					int other = arena.literal(offset, j);
+					byte value = value(other);
+
+					if (value == TRUE) {
+						satisfied = true;
+					} else if (value == UNASSIGNED) {
+						unassigned++;
+						last = other;
+					}
+				}
+
+				if (satisfied) {
+					continue;
+				}
+
+				if (unassigned == 0) {
+					return false;
+				} else if (unassigned == 1) {
+					if (!enqueue(last)) {
+						return false;
+					}
+				} else {
+					reduced++;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Make a literal true
+	 *
+	 * @param literal
+	 *            the literal
+	 * @return false if the literal is already false
+	 */
+
+	private boolean enqueue(int literal) {
+
+		byte value = value(literal);
+
+		if (value != UNASSIGNED) {
+			return value == TRUE;
+		}
+
+		values[Literal.variable(literal)] = Literal.isNegated(literal) ? FALSE : TRUE;
+		trail.add(literal);
+
+		return true;
+	}
+
+	/**
+	 * Undo every assignment made since the trail had a given size
+	 *
+	 * @param mark
+	 *            the size of the trail to go back to
+	 */
+
+	private void undo(int mark) {
+
+		for (int i = trail.size() - 1; i >= mark; i--) {
+			values[Literal.variable(trail.get(i))] = UNASSIGNED;
+		}
+
+		trail.shrink(mark);
+		propagationHead = mark;
+	}
+
+	/**
+	 * Get the value of a literal under the current assignment
+	 *
+	 * @param literal
+	 *            the literal
+	 * @return TRUE, FALSE or UNASSIGNED
+	 */
+
+	private byte value(int literal) {
+
+		byte value = values[Literal.variable(literal)];
+
+		if (Literal.isNegated(literal)) {
+			return (byte) -value;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Get the number of literals looked ahead on so far
+	 *
+	 * @return the number of lookaheads
+	 */
+
+	public long getLookaheads() {
+		return lookaheads;
+	}
+
+	/**
+	 * Get the number of failed literals found so far
+	 *
+	 * @return the number of failed literals
+	 */
+
+	public long getFailedLiterals() {
+		return failedLiterals;
+	}
+
+	/**
+	 * Get the number of branches refuted while splitting
+	 *
+	 * @return the number of refuted branches
+	 */
+
+	public long getRefuted() {
+		return refuted;
+	}
+
+}
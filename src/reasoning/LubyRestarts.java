@@ -0,0 +1,83 @@
+package reasoning;
+
+/**
+ * A restart policy following the Luby sequence (1, 1, 2, 1, 1, 2, 4, ...): the
+ * i-th restart happens after a number of conflicts equal to the i-th element of
+ * the sequence multiplied by a unit
+ * 
+ * @author George Kaye
+ *
+ */
+
+public class LubyRestarts implements RestartPolicy {
+
+	private int unit;
+	private int restarts;
+	private long conflicts;
+
+	/**
+	 * Create a new Luby restart policy with a unit of 100 conflicts
+	 */
+
+	public LubyRestarts() {
+		this(100);
+	}
+
+	/**
+	 * Create a new Luby restart policy
+	 * 
+	 * @param unit
+	 *            the number of conflicts each element of the sequence is worth
+	 */
+
+	public LubyRestarts(int unit) {
+		this.unit = unit;
+		this.restarts = 0;
+		this.conflicts = 0;
+	}
+
+	/**
+	 * Get an element of the Luby sequence
+	 * 
+	 * @param i
+	 *            the index of the element, starting at 0
+	 * @return the element
+	 */
+
+	public static long luby(int i) {
+
+		// find the finite subsequence containing i and its size
+		int size = 1;
+		int sequence = 0;
+
+		while (size < i + 1) {
+			sequence++;
+			size = 2 * size + 1;
+		}
+
+		while (size - 1 != i) {
+			size = (size - 1) >> 1;
+			sequence--;
+			i = i % size;
+		}
+
+		return 1L << sequence;
+	}
+
+	@Override
+	public void conflict(int lbd) {
+		conflicts++;
+	}
+
+	@Override
+	public boolean shouldRestart() {
+		return conflicts >= unit * luby(restarts);
+	}
+
+	@Override
+	public void restarted() {
+		restarts++;
+		conflicts = 0;
+	}
+
+}
@@ -0,0 +1,25 @@
+package reasoning;
+
+/**
+ * A restart policy that never restarts
+ * 
+ * @author George Kaye
+ *
+ */
+
+public class NoRestarts implements RestartPolicy {
+
+	@Override
+	public void conflict(int lbd) {
+	}
+
+	@Override
+	public boolean shouldRestart() {
+		return false;
+	}
+
+	@Override
+	public void restarted() {
+	}
+
+}
@@ -0,0 +1,52 @@
+package reasoning;
+
+/**
+ * A branching heuristic that always chooses the unassigned variable with the
+ * lowest index
+ * 
+ * @author George Kaye
+ *
+ */
+
+public class OrderedHeuristic implements BranchingHeuristic {
+
+	private int variables;
+	private int next;
+
+	@Override
+	public void initialise(int variables) {
+		this.variables = variables;
+		this.next = 0;
+	}
+
+	@Override
+	public int pickBranchVariable(CDCLSolver solver) {
+
+		while (next < variables && solver.isAssigned(next)) {
+			next++;
+		}
+
+		if (next == variables) {
+			return -1;
+		}
+
+		return next;
+	}
+
+	@Override
+	public void bump(int variable) {
+	}
+
+	@Override
+	public void conflict() {
+	}
+
+	@Override
+	public void unassign(int variable) {
+
+		if (variable < next) {
+			next = variable;
+		}
+	}
+
+}
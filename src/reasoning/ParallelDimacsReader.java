@@ -0,0 +1,298 @@
+package reasoning;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Reads a DIMACS file by memory-mapping it, splitting it into chunks that end
+ * at clause boundaries and parsing the chunks concurrently on a fork-join
+ * pool. Each chunk is read into its own clause arena and the arenas are joined
+ * in file order, so the result is the same as reading the file sequentially
+ * 
+ * @author George Kaye
+ *
+ */
+
+public class ParallelDimacsReader {
+
+	private static final long MIN_CHUNK_SIZE = 1 << 20;
+	private static final long MAX_CHUNK_SIZE = 1 << 28;
+	private static final int SCAN_SIZE = 1 << 16;
+
+	private ForkJoinPool pool;
+
+	/**
+	 * Create a new reader using the common fork-join pool
+	 */
+
+	public ParallelDimacsReader() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Create a new reader
+	 * 
+	 * @param pool
+	 *            the pool to parse chunks on
+	 */
+
+	public ParallelDimacsReader(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Read a DIMACS file, adding its clauses to an arena. Variables are interned
+	 * into the table as X1, X2, ... so that variable n has index n - 1
+	 * 
+	 * @param channel
+	 *            the channel of the file
+	 * @param table
+	 *            the table to intern variables into
+	 * @return the clause arena
+	 * @throws IOException
+	 *             if the file could not be read or is not valid DIMACS
+	 */
+
+	public ClauseArena read(FileChannel channel, VariableTable table) throws IOException {
+
+		long size = channel.size();
+		long chunkSize = size / (4L * pool.getParallelism());
+
+		chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+
+		// split the file after the 0 ending the first clause past each target
+		ArrayList<Long> boundaries = new ArrayList<>();
+		boundaries.add(0L);
+
+		long target = chunkSize;
+
+		while (target < size) {
+
+			long boundary = findBoundary(channel, target, size);
+
+			if (boundary > boundaries.get(boundaries.size() - 1)) {
+				boundaries.add(boundary);
+			}
+
+			target = Math.max(boundary, target) + chunkSize;
+		}
+
+		if (boundaries.get(boundaries.size() - 1) < size) {
+			boundaries.add(size);
+		}
+
+		ArrayList<ForkJoinTask<DimacsReader>> tasks = new ArrayList<>();
+		ArrayList<ForkJoinTask<Integer>> counts = new ArrayList<>();
+		ArrayList<MappedByteBuffer> chunks = new ArrayList<>();
+		ArrayList<ClauseArena> arenas = new ArrayList<>();
+
+		// count the lines of every chunk, so each one knows the line it
+		// starts on and reports errors by their line in the file
+		for (int i = 0; i + 1 < boundaries.size(); i++) {
+
+			long start = boundaries.get(i);
+			long length = boundaries.get(i + 1) - start;
+
+			MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+
+			chunks.add(chunk);
+			counts.add(pool.submit(() -> countLines(chunk)));
+		}
+
+		int line = 1;
+
+		for (int i = 0; i < chunks.size(); i++) {
+
+			MappedByteBuffer chunk = chunks.get(i);
+			int firstLine = line;
+
+			// a literal and its space take about four bytes, and so does the 0
+			// and newline ending a clause with its three header ints, so this
+			// is about right for typical files and the arena grows otherwise
+			ClauseArena arena = new ClauseArena((int) Math.min(Integer.MAX_VALUE - 8, chunk.capacity() / 4));
+
+			arenas.add(arena);
+			tasks.add(pool.submit(() -> {
+				DimacsReader reader = new DimacsReader(chunk.duplicate(), firstLine);
+				reader.readClauses(arena);
+				return reader;
+			}));
+
+			line += counts.get(i).join();
+		}
+
+		// join the chunks in file order
+		int declaredVariables = -1;
+		int maxVariable = 0;
+		long total = 0;
+
+		for (int i = 0; i < tasks.size(); i++) {
+
+			DimacsReader reader;
+
+			try {
+				reader = join(tasks.get(i));
+			} catch (IOException e) {
+
+				// the chunks after this one are not needed any more
+				for (int j = i + 1; j < tasks.size(); j++) {
+					tasks.get(j).cancel(true);
+				}
+
+				throw e;
+			}
+
+			declaredVariables = Math.max(declaredVariables, reader.getDeclaredVariables());
+			maxVariable = Math.max(maxVariable, reader.getMaxVariable());
+			total += arenas.get(i).end();
+		}
+
+		ClauseArena result = new ClauseArena((int) Math.min(Integer.MAX_VALUE - 8, total));
+
+		// let each chunk be collected once it has been copied
+		for (int i = 0; i < arenas.size(); i++) {
+			result.append(arenas.get(i));
+			arenas.set(i, null);
+		}
+
+		DimacsReader.addVariables(table, Math.max(declaredVariables, maxVariable));
+
+		return result;
+	}
+
+	/**
+	 * Count the newlines in a chunk
+	 * 
+	 * @param chunk
+	 *            the chunk
+	 * @return the number of newlines
+	 */
+
+	private static int countLines(ByteBuffer chunk) {
+
+		int lines = 0;
+		int limit = chunk.limit();
+
+		for (int i = chunk.position(); i < limit; i++) {
+			if (chunk.get(i) == '\n') {
+				lines++;
+			}
+		}
+
+		return lines;
+	}
+
+	/**
+	 * Wait for a chunk to be parsed
+	 * 
+	 * @param task
+	 *            the task parsing the chunk
+	 * @return the reader used for the chunk
+	 * @throws IOException
+	 *             if the chunk was not valid DIMACS
+	 */
+
+	private static DimacsReader join(ForkJoinTask<DimacsReader> task) throws IOException {
+
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+
+			// the pool wraps checked exceptions thrown by the task
+			for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+			}
+
+			throw new IOException(e.getCause());
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading DIMACS");
+		}
+	}
+
+	/**
+	 * Find the end of the first clause that ends after a position. The search
+	 * starts at the beginning of the next line so that comment lines can be
+	 * recognised
+	 * 
+	 * @param channel
+	 *            the channel of the file
+	 * @param from
+	 *            the position to search from
+	 * @param size
+	 *            the size of the file
+	 * @return the position just after the 0 ending the clause, or the size of
+	 *         the file if there is not one
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+
+	private static long findBoundary(FileChannel channel, long from, long size) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+		long position = from;
+
+		boolean lineStart = false;
+		boolean comment = true;
+		boolean inToken = false;
+		boolean zero = false;
+
+		while (position < size) {
+
+			buffer.clear();
+			int read = channel.read(buffer, position);
+
+			if (read <= 0) {
+				break;
+			}
+
+			for (int i = 0; i < read; i++) {
+
+				int c = buffer.get(i);
+
+				if (c == '\n' || c == ' ' || c == '\t' || c == '\r') {
+
+					if (inToken && zero && !comment) {
+						return position + i;
+					}
+
+					inToken = false;
+
+					if (c == '\n') {
+						lineStart = true;
+						comment = false;
+					}
+
+				} else if (!comment) {
+
+					if (lineStart && (c == 'c' || c == 'p')) {
+						comment = true;
+					} else if (lineStart && c == '%') {
+						return size;
+					} else if (!inToken) {
+						inToken = true;
+						zero = c == '0';
+					} else if (c != '0') {
+						zero = false;
+					}
+
+					lineStart = false;
+				}
+			}
+
+			position += read;
+		}
+
+		return size;
+	}
+
+}
@@ -0,0 +1,269 @@
+package reasoning;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Solves a clause normal form with several differently configured solvers at
+ * once, each on its own thread. The answer of whichever solver finishes first
+ * is taken and the others are interrupted. The solvers are all CDCL solvers
+ * differing in their branching heuristic and its random seed, restart policy
+ * and phase, so at least one of them is likely to suit any given problem. They
+ * can share their short learned clauses through an exchange so that they do
+ * not redo each other's work
+ *
+ * @author George Kaye
+ *
+ */
+
+public class Portfolio {
+
+	private ClauseNormalForm cnf;
+	private VariableTable table;
+	private ClauseArena arena;
+	private ArrayList<Callable<Outcome>> members;
+	private ClauseExchange exchange;
+	private int sharing;
+
+	/**
+	 * Create a new portfolio with the default solvers, which do not share
+	 * clauses
+	 *
+	 * @param cnf
+	 *            the clause normal form, which is not modified
+	 */
+
+	public Portfolio(ClauseNormalForm cnf) {
+		this(cnf, null);
+	}
+
+	/**
+	 * Create a new portfolio with the default solvers
+	 *
+	 * @param cnf
+	 *            the clause normal form, which is not modified
+	 * @param exchange
+	 *            the exchange the CDCL solvers share learned clauses through,
+	 *            or null to not share them
+	 */
+
+	public Portfolio(ClauseNormalForm cnf, ClauseExchange exchange) {
+
+		this.cnf = cnf;
+		this.exchange = exchange;
+		this.sharing = 0;
+		this.table = new VariableTable(cnf);
+		this.arena = ClauseArena.fromClauseNormalForm(cnf, table);
+		this.members = new ArrayList<>();
+
+		addSolver("cdcl vsids luby", new VSIDSHeuristic(), new LubyRestarts(), true, false);
+		addSolver("cdcl vsids glucose phase-saving", new VSIDSHeuristic(), new GlucoseRestarts(), false, true);
+		addSolver("cdcl ordered luby phase-saving", new OrderedHeuristic(), new LubyRestarts(), true, true);
+		addSolver("cdcl vsids(seed 1) luby", new VSIDSHeuristic(0.95, 1), new LubyRestarts(), false, false);
+		addSolver("cdcl vsids(seed 2) glucose", new VSIDSHeuristic(0.9, 2), new GlucoseRestarts(), true, true);
+		addSolver("cdcl vsids(seed 3) no restarts", new VSIDSHeuristic(0.95, 3), new NoRestarts(), false, true);
+	}
+
+	/**
+	 * Add a CDCL solver to the portfolio. It gets its own copy of the clauses,
+	 * since it adds learned clauses to them
+	 *
+	 * @param name
+	 *            the name of the solver
+	 * @param heuristic
+	 *            the branching heuristic
+	 * @param restartPolicy
+	 *            the restart policy
+	 * @param phase
+	 *            the polarity to decide variables with
+	 * @param phaseSaving
+	 *            whether to reuse the last polarity of a variable instead
+	 */
+
+	public void addSolver(String name, BranchingHeuristic heuristic, RestartPolicy restartPolicy, boolean phase,
+			boolean phaseSaving) {
+
+		ClauseArena copy = new ClauseArena();
+		copy.append(arena);
+
+		int id = sharing;
+		sharing++;
+
+		members.add(() -> {
+
+			CDCLSolver cdcl = new CDCLSolver(copy, table);
+			cdcl.setHeuristic(heuristic);
+			cdcl.setRestartPolicy(restartPolicy);
+			cdcl.setPhase(phase, phaseSaving);
+
+			if (exchange != null) {
+				cdcl.setExchange(exchange, id);
+			}
+
+			LogicModel model = cdcl.solve();
+
+			return new Outcome(name, model, cdcl.getStatistics());
+		});
+	}
+
+	/**
+	 * Add the DPLL procedure to the portfolio. Its answer is only taken when
+	 * it finds a model that satisfies the clauses, since it can wrongly report
+	 * a satisfiable problem as unsatisfiable; otherwise it fails, and the
+	 * portfolio waits for one of the other solvers
+	 */
+
+	public void addDavisPutnam() {
+		members.add(() -> {
+
+			LogicModel model = LogicMethods.davisPutnam(cnf);
+
+			if (model == null || !satisfies(model)) {
+				throw new IllegalStateException("DPLL did not find a model");
+			}
+
+			return new Outcome("dpll", model, null);
+		});
+	}
+
+	/**
+	 * Check that a model satisfies every clause
+	 *
+	 * @param model
+	 *            the model
+	 * @return whether every clause has a literal true in the model
+	 */
+
+	private boolean satisfies(LogicModel model) {
+
+		boolean[] assigned = new boolean[table.size()];
+		boolean[] values = new boolean[table.size()];
+
+		for (Map.Entry<LogicExpression, Boolean> entry : model.getModel().entrySet()) {
+
+			int variable = table.getVariable(entry.getKey().getName());
+
+			if (variable != -1) {
+				assigned[variable] = true;
+				values[variable] = entry.getValue();
+			}
+		}
+
+		for (int offset = arena.first(); offset < arena.end(); offset = arena.next(offset)) {
+
+			boolean satisfied = false;
+
+			for (int i = 0; i < arena.size(offset) && !satisfied; i++) {
+
+				int literal = arena.literal(offset, i);
+				int variable = Literal.variable(literal);
+
+				satisfied = assigned[variable] && values[variable] != Literal.isNegated(literal);
+			}
+
+			if (!satisfied) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Get the number of solvers in the portfolio
+	 *
+	 * @return the number of solvers
+	 */
+
+	public int size() {
+		return members.size();
+	}
+
+	/**
+	 * Run every solver until one of them finishes
+	 *
+	 * @return the outcome of the first solver to finish
+	 */
+
+	public Outcome solve() {
+
+		ExecutorService executor = Executors.newFixedThreadPool(members.size(), runnable -> {
+			Thread thread = new Thread(runnable, "portfolio");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			return executor.invokeAny(members);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Every solver failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The answer of the solver that finished first
+	 */
+
+	public static final class Outcome {
+
+		private final String solver;
+		private final LogicModel model;
+		private final String statistics;
+
+		Outcome(String solver, LogicModel model, String statistics) {
+			this.solver = solver;
+			this.model = model;
+			this.statistics = statistics;
+		}
+
+		/**
+		 * Get the name of the solver that finished first
+		 *
+		 * @return the name of the solver
+		 */
+
+		public String getSolver() {
+			return solver;
+		}
+
+		/**
+		 * Get the model found
+		 *
+		 * @return the model, or null if the clauses are unsatisfiable
+		 */
+
+		public LogicModel getModel() {
+			return model;
+		}
+
+		/**
+		 * Get the statistics of the solver that finished first
+		 *
+		 * @return the statistics, or null if the solver does not keep any
+		 */
+
+		public String getStatistics() {
+			return statistics;
+		}
+
+		/**
+		 * Get the result
+		 *
+		 * @return SATISFIABLE if a model was found, otherwise UNSATISFIABLE
+		 */
+
+		public Result getResult() {
+			return model == null ? Result.UNSATISFIABLE : Result.SATISFIABLE;
+		}
+	}
+
+}
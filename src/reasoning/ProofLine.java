@@ -24,6 +24,18 @@ public class ProofLine {
 		this.operation = operation;
 	}
 	
+	/**
+	 * Create a new proof line from a clause stored in a clause arena
+	 * @param arena the clause arena
+	 * @param offset the offset of the clause
+	 * @param table the table the literals were interned in
+	 * @param operation the operation resulting in this line
+	 */
+	
+	public ProofLine(ClauseArena arena, int offset, VariableTable table, String operation){
+		this(arena.getClause(offset, table), operation);
+	}
+	
 	public String toString(){
 		
 		int j = 20 - main.toString().length();
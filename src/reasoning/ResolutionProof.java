@@ -1,6 +1,7 @@
 package reasoning;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 
 /**
@@ -12,6 +13,7 @@ import java.util.HashSet;
 public class ResolutionProof {
 	
 	private ArrayList<ProofLine> lines;
+	private HashMap<HashSet<LogicExpression>, Integer> numbers;
 	private Result result;
 	
 	/**
@@ -20,6 +22,7 @@ public class ResolutionProof {
 	
 	public ResolutionProof(){
 		lines = new ArrayList<>();
+		numbers = new HashMap<>();
 	}
 	
 	/**
@@ -30,7 +33,12 @@ public class ResolutionProof {
 	
 	public ResolutionProof(ArrayList<ProofLine> lines, Result result){
 		this.lines = lines;
+		this.numbers = new HashMap<>();
 		this.result = result;
+		
+		for(int i = 0; i < lines.size(); i++){
+			numbers.putIfAbsent(lines.get(i).getMain(), i + 1);
+		}
 	}
 	
 	/**
@@ -39,27 +47,27 @@ public class ResolutionProof {
 	
 	public String toString(){
 		
-		String returnString = "======= RESOLUTION PROOF ========";
+		StringBuilder builder = new StringBuilder("======= RESOLUTION PROOF ========");
 		
 		int lineNo = 1;
 		
 		for(ProofLine line : lines){
-			returnString += ("\n" + lineNo + ": " + line);
+			builder.append("\n").append(lineNo).append(": ").append(line);
 			lineNo++;
 		}
 		
 		if(result == Result.SATISFIABLE){
-			returnString += "\nNo more clauses to resolve";
-			returnString += "\nNegation satisfiable";
+			builder.append("\nNo more clauses to resolve");
+			builder.append("\nNegation satisfiable");
 		}
 		else if(result == Result.UNSATISFIABLE) {
-			returnString += "\nContradiction found!";
-			returnString += "\nNegation unsatisfiable";
+			builder.append("\nContradiction found!");
+			builder.append("\nNegation unsatisfiable");
 		}
 		
-		returnString += "\n======== PROOF CONCLUDES ========";
+		builder.append("\n======== PROOF CONCLUDES ========");
 		
-		return returnString;
+		return builder.toString();
 	}
 	
 	/**
@@ -70,17 +78,13 @@ public class ResolutionProof {
 	
 	public int getLine(HashSet<LogicExpression> query){
 		
-		int i = 1;
+		Integer number = numbers.get(query);
 		
-		for(ProofLine line : lines){
-			if(line.getMain().equals(query)){
-				return i;
-			}
-			
-			i++;
+		if(number == null){
+			return -1;
 		}
 		
-		return -1;
+		return number;
 		
 	}
 	
@@ -91,6 +95,7 @@ public class ResolutionProof {
 	
 	public void addLine(ProofLine newLine){
 		lines.add(newLine);
+		numbers.putIfAbsent(newLine.getMain(), lines.size());
 	}
 	
 	/**
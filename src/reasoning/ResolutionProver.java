@@ -0,0 +1,832 @@
+package reasoning;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Searches for a resolution refutation of a clause normal form with a given
+ * clause loop. Clauses wait in an unprocessed queue; each iteration takes one
+ * (the given clause), resolves it against every processed clause containing a
+ * complementary literal, queues the new resolvents and moves the given clause
+ * to the processed set. Kept clauses are indexed by the literals they contain,
+ * so resolution partners are found without scanning every clause. New clauses
+ * subsumed by a kept clause are discarded, and kept clauses subsumed by a new
+ * clause are deleted. The search stops at the empty clause or when nothing is
+ * left to process. A strategy can restrict which clauses are resolved; each
+ * strategy is still complete for refutation, set of support as long as the
+ * clauses outside the support are satisfiable
+ *
+ * @author George Kaye
+ *
+ */
+
+public class ResolutionProver {
+
+	/**
+	 * The restrictions on which clauses are resolved
+	 */
+
+	public enum Strategy {
+
+		/**
+		 * Resolve every pair of clauses, oldest first
+		 */
+		NONE,
+
+		/**
+		 * Only resolve pairs with at least one clause from the set of support
+		 * (or derived from it)
+		 */
+		SET_OF_SUPPORT,
+
+		/**
+		 * Resolve unit clauses before any other clause
+		 */
+		UNIT_PREFERENCE,
+
+		/**
+		 * Only resolve on the greatest variable of each clause, variables being
+		 * ordered by when they were first seen
+		 */
+		ORDERED
+	}
+
+	// the fewest partners worth resolving in parallel, and the most resolved
+	// by one task without splitting
+	private static final int PARALLEL_THRESHOLD = 64;
+	private static final int BATCH_SIZE = 32;
+
+	private Strategy strategy;
+	private int threads;
+	private ForkJoinPool pool;
+	private VariableTable table;
+	private ClauseArena arena;
+	private ResolutionProof proof;
+
+	private IntList offsets;
+	private HashMap<ClauseKey, Integer> lines;
+	private long[] signatures;
+
+	private ClauseQueue unprocessed;
+	private ArrayDeque<Integer> units;
+	private BitSet processed;
+	private IntList[] occurrences;
+
+	private int[] resolvent;
+	private int resolvents;
+	private int forwardSubsumed;
+	private int backwardSubsumed;
+
+	/**
+	 * Create a new prover that resolves every pair of clauses
+	 *
+	 * @param cnf
+	 *            the clause normal form to refute
+	 */
+
+	public ResolutionProver(ClauseNormalForm cnf) {
+		this(cnf, null, Strategy.NONE);
+	}
+
+	/**
+	 * Create a new prover that takes the oldest clause as the given clause
+	 *
+	 * @param cnf
+	 *            the clause normal form to refute
+	 * @param support
+	 *            the set of support, or null if every clause is in it
+	 * @param strategy
+	 *            the strategy
+	 */
+
+	public ResolutionProver(ClauseNormalForm cnf, ClauseNormalForm support, Strategy strategy) {
+		this(cnf, support, strategy, new ClauseQueue(ClauseQueue.Selection.AGE, 0));
+	}
+
+	/**
+	 * Create a new prover
+	 *
+	 * @param cnf
+	 *            the clause normal form to refute
+	 * @param support
+	 *            the set of support, usually the clauses of the negated
+	 *            conclusion, or null if every clause is in it. It is only used
+	 *            by the set of support strategy, and its clauses are added to
+	 *            the clause normal form
+	 * @param strategy
+	 *            the strategy
+	 * @param unprocessed
+	 *            the (empty) queue choosing the given clause
+	 */
+
+	public ResolutionProver(ClauseNormalForm cnf, ClauseNormalForm support, Strategy strategy,
+			ClauseQueue unprocessed) {
+
+		if (strategy != Strategy.SET_OF_SUPPORT) {
+			support = null;
+		}
+
+		this.strategy = strategy;
+		this.threads = 1;
+		this.table = new VariableTable(cnf);
+		this.arena = new ClauseArena();
+		this.proof = new ResolutionProof();
+		this.offsets = new IntList();
+		this.lines = new HashMap<>();
+		this.signatures = new long[16];
+		this.unprocessed = unprocessed;
+		this.units = new ArrayDeque<>();
+		this.processed = new BitSet();
+		this.resolvent = new int[16];
+		this.resolvents = 0;
+		this.forwardSubsumed = 0;
+		this.backwardSubsumed = 0;
+
+		if (support != null) {
+			for (HashSet<LogicExpression> clause : support.getCNF()) {
+				table.toLiterals(clause);
+			}
+		}
+
+		this.occurrences = new IntList[2 * table.size()];
+
+		for (int i = 0; i < occurrences.length; i++) {
+			occurrences[i] = new IntList();
+		}
+
+		// the support goes first, so clauses also in the support are in it
+		if (support != null) {
+			for (HashSet<LogicExpression> clause : support.getCNF()) {
+				addClause(clause, true);
+			}
+		}
+
+		for (HashSet<LogicExpression> clause : cnf.getCNF()) {
+			addClause(clause, support == null);
+		}
+	}
+
+	/**
+	 * Search for the empty clause
+	 *
+	 * @return the proof, UNSATISFIABLE if the empty clause was derived and
+	 *         SATISFIABLE if every clause was processed without deriving it
+	 */
+
+	public ResolutionProof prove() {
+
+		if (proof.getResult() == Result.UNSATISFIABLE) {
+			return proof;
+		}
+
+		if (threads > 1) {
+			pool = new ForkJoinPool(threads);
+		}
+
+		try {
+			saturate();
+		} finally {
+
+			if (pool != null) {
+				pool.shutdown();
+				pool = null;
+			}
+		}
+
+		return proof;
+	}
+
+	/**
+	 * Take given clauses until the empty clause is derived or there are none
+	 * left, setting the result of the proof
+	 */
+
+	private void saturate() {
+
+		while (true) {
+
+			int given = units.isEmpty() ? unprocessed.poll() : units.poll();
+
+			if (given == -1) {
+				break;
+			}
+
+			int offset = offsets.get(given);
+
+			// clauses outside the set of support are already processed
+			if (arena.hasFlag(offset, ClauseArena.DELETED) || processed.get(given)) {
+				continue;
+			}
+
+			processed.set(given);
+
+			if (resolveGiven(given)) {
+				proof.setResult(Result.UNSATISFIABLE);
+				return;
+			}
+		}
+
+		proof.setResult(Result.SATISFIABLE);
+	}
+
+	/**
+	 * Resolve the given clause against every processed clause it can be
+	 * resolved with. With more than one thread and enough partners the
+	 * resolvents are generated, and checked against the clauses kept so far,
+	 * in parallel; they are then added in the same order as they would have
+	 * been by a single thread, so the proof is the same either way
+	 *
+	 * @param given
+	 *            the line of the given clause
+	 * @return whether the empty clause was derived
+	 */
+
+	private boolean resolveGiven(int given) {
+
+		int offset = offsets.get(given);
+		IntList indices = new IntList();
+		IntList partners = new IntList();
+
+		// ordered resolution only resolves on the last (greatest) literal
+		int first = strategy == Strategy.ORDERED ? arena.size(offset) - 1 : 0;
+
+		for (int i = first; i < arena.size(offset); i++) {
+
+			int complement = Literal.negate(arena.literal(offset, i));
+			IntList candidates = occurrences[complement];
+			purge(candidates);
+
+			for (int j = 0; j < candidates.size(); j++) {
+
+				int partner = candidates.get(j);
+				int other = offsets.get(partner);
+
+				if (!processed.get(partner)) {
+					continue;
+				}
+
+				if (strategy == Strategy.ORDERED && arena.literal(other, arena.size(other) - 1) != complement) {
+					continue;
+				}
+
+				indices.add(i);
+				partners.add(partner);
+			}
+		}
+
+		int[][] generated = null;
+		boolean[] subsumed = null;
+
+		if (pool != null && partners.size() >= PARALLEL_THRESHOLD) {
+
+			generated = new int[partners.size()][];
+			subsumed = new boolean[partners.size()];
+
+			pool.invoke(new GenerateTask(offset, indices, partners, generated, subsumed, 0, partners.size()));
+		}
+
+		int index = -1;
+
+		for (int c = 0; c < partners.size(); c++) {
+
+			// a resolvent may have subsumed the given clause
+			if (indices.get(c) != index) {
+
+				if (arena.hasFlag(offset, ClauseArena.DELETED)) {
+					break;
+				}
+
+				index = indices.get(c);
+			}
+
+			int partner = partners.get(c);
+
+			// or any of its partners
+			if (arena.hasFlag(offsets.get(partner), ClauseArena.DELETED)) {
+				continue;
+			}
+
+			int[] literals;
+			int length;
+
+			if (generated == null) {
+
+				int other = offsets.get(partner);
+
+				if (resolvent.length < arena.size(offset) + arena.size(other)) {
+					resolvent = new int[2 * (arena.size(offset) + arena.size(other))];
+				}
+
+				literals = resolvent;
+				length = resolve(offset, other, index, resolvent);
+
+			} else {
+				literals = generated[c];
+				length = literals == null ? -1 : literals.length;
+			}
+
+			// tautologies are never added
+			if (length == -1) {
+				continue;
+			}
+
+			resolvents++;
+
+			// the resolvent was subsumed by a clause kept before this given
+			// clause was chosen, if that clause has been deleted since its
+			// subsumer subsumes the resolvent too
+			if (subsumed != null && subsumed[c]) {
+
+				if (!lines.containsKey(new ClauseKey(literals))) {
+					forwardSubsumed++;
+				}
+
+				continue;
+			}
+
+			int line = addClause(literals, length, null, "Res " + (given + 1) + ", " + (partner + 1));
+
+			if (line != -1 && length == 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Resolve two clauses on a literal of the first and its complement in the
+	 * second
+	 *
+	 * @param offset1
+	 *            the offset of the first clause
+	 * @param offset2
+	 *            the offset of the second clause
+	 * @param index
+	 *            the index of the literal in the first clause
+	 * @param buffer
+	 *            the buffer to write the resolvent into, big enough for the
+	 *            literals of both clauses
+	 * @return the length of the resolvent, or -1 if it is a tautology
+	 */
+
+	private int resolve(int offset1, int offset2, int index, int[] buffer) {
+
+		int size1 = arena.size(offset1);
+		int size2 = arena.size(offset2);
+
+		int pivot = arena.literal(offset1, index);
+		int complement = Literal.negate(pivot);
+
+		// merge the sorted literals, leaving out the pivot and its complement
+		int length = 0;
+		int i = 0;
+		int j = 0;
+
+		while (i < size1 || j < size2) {
+
+			int literal;
+
+			if (j == size2 || (i < size1 && arena.literal(offset1, i) <= arena.literal(offset2, j))) {
+				literal = arena.literal(offset1, i);
+				i++;
+			} else {
+				literal = arena.literal(offset2, j);
+				j++;
+			}
+
+			if (literal == pivot || literal == complement || (length > 0 && buffer[length - 1] == literal)) {
+				continue;
+			}
+
+			// complementary literals are next to each other when sorted
+			if (length > 0 && buffer[length - 1] == Literal.negate(literal)) {
+				return -1;
+			}
+
+			buffer[length] = literal;
+			length++;
+		}
+
+		return length;
+	}
+
+	/**
+	 * Add a clause of the clause normal form to the proof
+	 *
+	 * @param clause
+	 *            the clause
+	 * @param supported
+	 *            whether the clause is in the set of support, otherwise it is
+	 *            processed straight away so it is never the given clause
+	 */
+
+	private void addClause(HashSet<LogicExpression> clause, boolean supported) {
+
+		int[] literals = table.toLiterals(clause);
+		Arrays.sort(literals);
+
+		int line = addClause(literals, literals.length, clause, "");
+
+		if (line != -1 && !supported) {
+			processed.set(line);
+		}
+	}
+
+	/**
+	 * Add a clause to the proof and the unprocessed queue. Resolvents that are
+	 * already in the proof or are subsumed by a kept clause are not added at
+	 * all; clauses of the clause normal form always get a line but are not
+	 * kept if they are tautologies or subsumed
+	 *
+	 * @param literals
+	 *            the sorted literals of the clause
+	 * @param length
+	 *            the number of literals
+	 * @param clause
+	 *            the clause as a set of atoms, or null if it is a resolvent
+	 * @param operation
+	 *            the operation resulting in the clause
+	 * @return the line of the new clause, or -1 if it was not added
+	 */
+
+	private int addClause(int[] literals, int length, HashSet<LogicExpression> clause, String operation) {
+
+		ClauseKey key = new ClauseKey(Arrays.copyOf(literals, length));
+
+		if (lines.containsKey(key)) {
+			return -1;
+		}
+
+		long signature = signature(key.literals);
+		boolean subsumed = isSubsumed(key.literals, signature);
+
+		if (subsumed && clause == null) {
+			forwardSubsumed++;
+			return -1;
+		}
+
+		int line = offsets.size();
+		int offset = arena.addClause(key.literals);
+
+		offsets.add(offset);
+		lines.put(key, line);
+
+		if (line == signatures.length) {
+			signatures = Arrays.copyOf(signatures, 2 * line);
+		}
+
+		signatures[line] = signature;
+
+		if (clause == null) {
+			proof.addLine(new ProofLine(arena, offset, table, operation));
+		} else {
+			proof.addLine(new ProofLine(clause, operation));
+		}
+
+		if (length == 0) {
+			proof.setResult(Result.UNSATISFIABLE);
+			return line;
+		}
+
+		if (subsumed || isTautology(key.literals)) {
+			arena.delete(offset);
+			return line;
+		}
+
+		subsume(line);
+
+		for (int literal : key.literals) {
+			occurrences[literal].add(line);
+		}
+
+		if (strategy == Strategy.UNIT_PREFERENCE && length == 1) {
+			units.add(line);
+		} else {
+			unprocessed.add(line, length);
+		}
+
+		return line;
+	}
+
+	/**
+	 * Find out if a kept clause subsumes a clause, i.e. all of its literals are
+	 * in the clause
+	 *
+	 * @param literals
+	 *            the sorted literals of the clause
+	 * @param signature
+	 *            the signature of the clause
+	 * @return whether the clause is subsumed
+	 */
+
+	private boolean isSubsumed(int[] literals, long signature) {
+
+		for (int literal : literals) {
+
+			IntList candidates = occurrences[literal];
+
+			for (int i = 0; i < candidates.size(); i++) {
+
+				int candidate = candidates.get(i);
+				int offset = offsets.get(candidate);
+
+				// only check each candidate under its first literal
+				if ((signatures[candidate] & ~signature) != 0 || arena.literal(offset, 0) != literal
+						|| arena.size(offset) > literals.length || arena.hasFlag(offset, ClauseArena.DELETED)) {
+					continue;
+				}
+
+				if (isSubset(offset, literals)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Delete every kept clause subsumed by a new clause
+	 *
+	 * @param line
+	 *            the line of the new clause
+	 */
+
+	private void subsume(int line) {
+
+		int offset = offsets.get(line);
+		int size = arena.size(offset);
+
+		// a subsumed clause contains every literal, so only check the rarest
+		IntList candidates = occurrences[arena.literal(offset, 0)];
+
+		for (int i = 1; i < size; i++) {
+
+			IntList list = occurrences[arena.literal(offset, i)];
+
+			if (list.size() < candidates.size()) {
+				candidates = list;
+			}
+		}
+
+		for (int i = 0; i < candidates.size(); i++) {
+
+			int candidate = candidates.get(i);
+			int other = offsets.get(candidate);
+
+			if ((signatures[line] & ~signatures[candidate]) != 0 || arena.size(other) < size
+					|| arena.hasFlag(other, ClauseArena.DELETED)) {
+				continue;
+			}
+
+			if (isSubset(offset, arena.getLiterals(other))) {
+				arena.delete(other);
+				backwardSubsumed++;
+			}
+		}
+	}
+
+	/**
+	 * Find out if every literal of a clause is in a sorted array of literals
+	 *
+	 * @param offset
+	 *            the offset of the clause
+	 * @param literals
+	 *            the sorted literals
+	 * @return whether the clause is a subset of the literals
+	 */
+
+	private boolean isSubset(int offset, int[] literals) {
+
+		int size = arena.size(offset);
+		int j = 0;
+
+		for (int i = 0; i < size; i++) {
+
+			int literal = arena.literal(offset, i);
+
+			while (j < literals.length && literals[j] < literal) {
+				j++;
+			}
+
+			if (j == literals.length || literals[j] != literal) {
+				return false;
+			}
+
+			j++;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Remove the deleted clauses from a list of lines
+	 *
+	 * @param list
+	 *            the list
+	 */
+
+	private void purge(IntList list) {
+
+		int size = 0;
+
+		for (int i = 0; i < list.size(); i++) {
+
+			int line = list.get(i);
+
+			if (!arena.hasFlag(offsets.get(line), ClauseArena.DELETED)) {
+				list.set(size, line);
+				size++;
+			}
+		}
+
+		list.shrink(size);
+	}
+
+	/**
+	 * Get the signature of a clause, a bit mask with a bit set for each
+	 * literal. If one clause subsumes another, the bits of its signature are
+	 * all set in the signature of the other
+	 *
+	 * @param literals
+	 *            the literals
+	 * @return the signature
+	 */
+
+	private static long signature(int[] literals) {
+
+		long signature = 0;
+
+		for (int literal : literals) {
+			signature |= 1L << (literal & 63);
+		}
+
+		return signature;
+	}
+
+	/**
+	 * Find out if a sorted clause contains a literal and its complement
+	 *
+	 * @param literals
+	 *            the sorted literals
+	 * @return whether the clause is a tautology
+	 */
+
+	private static boolean isTautology(int[] literals) {
+
+		for (int i = 1; i < literals.length; i++) {
+			if (literals[i] == Literal.negate(literals[i - 1])) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Set the number of threads used to generate resolvents
+	 *
+	 * @param threads
+	 *            the number of threads
+	 */
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Get the number of resolvents that were not tautologies
+	 *
+	 * @return the number of resolvents
+	 */
+
+	public int getResolvents() {
+		return resolvents;
+	}
+
+	/**
+	 * Get the number of distinct clauses in the proof
+	 *
+	 * @return the number of clauses
+	 */
+
+	public int getClauses() {
+		return offsets.size();
+	}
+
+	/**
+	 * Get the number of resolvents discarded because a kept clause subsumed
+	 * them
+	 *
+	 * @return the number of forward subsumed resolvents
+	 */
+
+	public int getForwardSubsumed() {
+		return forwardSubsumed;
+	}
+
+	/**
+	 * Get the number of kept clauses deleted because a new clause subsumed
+	 * them
+	 *
+	 * @return the number of backward subsumed clauses
+	 */
+
+	public int getBackwardSubsumed() {
+		return backwardSubsumed;
+	}
+
+	/**
+	 * Generates the resolvents of the given clause with a range of its
+	 * partners, splitting the range in half until it is small enough. Nothing
+	 * is modified while the tasks run, so they only read the clauses and index
+	 */
+
+	private final class GenerateTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int offset;
+		private final IntList indices;
+		private final IntList partners;
+		private final int[][] generated;
+		private final boolean[] subsumed;
+		private final int from;
+		private final int to;
+
+		GenerateTask(int offset, IntList indices, IntList partners, int[][] generated, boolean[] subsumed, int from,
+				int to) {
+			this.offset = offset;
+			this.indices = indices;
+			this.partners = partners;
+			this.generated = generated;
+			this.subsumed = subsumed;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (to - from > BATCH_SIZE) {
+
+				int middle = (from + to) >>> 1;
+
+				invokeAll(new GenerateTask(offset, indices, partners, generated, subsumed, from, middle),
+						new GenerateTask(offset, indices, partners, generated, subsumed, middle, to));
+
+				return;
+			}
+
+			int[] buffer = new int[16];
+
+			for (int c = from; c < to; c++) {
+
+				int other = offsets.get(partners.get(c));
+
+				if (buffer.length < arena.size(offset) + arena.size(other)) {
+					buffer = new int[2 * (arena.size(offset) + arena.size(other))];
+				}
+
+				int length = resolve(offset, other, indices.get(c), buffer);
+
+				if (length != -1) {
+					generated[c] = Arrays.copyOf(buffer, length);
+					subsumed[c] = isSubsumed(generated[c], signature(generated[c]));
+				}
+			}
+		}
+	}
+
+	/**
+	 * The sorted literals of a clause, used to look up its line
+	 */
+
+	private static final class ClauseKey {
+
+		private final int[] literals;
+		private final int hash;
+
+		ClauseKey(int[] literals) {
+			this.literals = literals;
+			this.hash = Arrays.hashCode(literals);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ClauseKey && Arrays.equals(((ClauseKey) obj).literals, literals);
+		}
+	}
+
+}
@@ -0,0 +1,37 @@
+package reasoning;
+
+/**
+ * An interface for the policies a CDCL solver uses to decide when to abandon
+ * its current assignment and restart the search from decision level 0
+ * 
+ * @author George Kaye
+ *
+ */
+
+public interface RestartPolicy {
+
+	/**
+	 * Notify the policy that a conflict has been analysed
+	 * 
+	 * @param lbd
+	 *            the literal block distance (number of distinct decision
+	 *            levels) of the learned clause
+	 */
+
+	public void conflict(int lbd);
+
+	/**
+	 * Find out if the solver should restart now
+	 * 
+	 * @return whether to restart
+	 */
+
+	public boolean shouldRestart();
+
+	/**
+	 * Notify the policy that the solver has restarted
+	 */
+
+	public void restarted();
+
+}
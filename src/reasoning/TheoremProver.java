@@ -1,5 +1,11 @@
 package reasoning;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
 /**
  * Main class for the Theorem Prover
  * 
@@ -12,11 +18,29 @@ public class TheoremProver {
 	public static boolean debug = false;
 	public static boolean time = false;
 	public static boolean dimacs = false;
+	public static String solver = "dpll";
+	public static String branching = "vsids";
+	public static boolean phaseSaving = false;
+	public static String restarts = "luby";
+	public static boolean mapped = false;
+	public static String encoding = "distribute";
+	public static String strategy = "none";
+	public static String selection = "age";
+	public static int pickGiven = 4;
+	public static int threads = 1;
+	public static int shareSize = 8;
+	public static int shareLBD = 2;
+	public static int cubeDepth = 8;
+	public static String queue;
+	public static int jobs = Runtime.getRuntime().availableProcessors();
 	public static String fileName;
 	public static String mode;
 	public static String input;
 	public static String format;
 	public static LogicExpression parsedExpression;
+	public static ClauseArena arena;
+	public static VariableTable table;
+	public static TseitinEncoder encoder;
 
 	public static void main(String[] args) {
 
@@ -29,21 +53,89 @@ public class TheoremProver {
 			mode = args[0];
 			format = args[1];
 
-			if (args.length == 4) {
-				if (args[3].equals("-debug")) {
+			for (int i = 3; i < args.length; i++) {
+
+				if (args[i].equals("-debug")) {
 					debug = true;
+				} else if (args[i].equals("-solver")) {
+					i++;
+					solver = args[i];
+
+					if (!solver.equals("cdcl") && !solver.equals("dpll")) {
+						wrongArguments();
+					}
+				} else if (args[i].equals("-branch")) {
+					i++;
+					branching = args[i];
+				} else if (args[i].equals("-phase-saving")) {
+					phaseSaving = true;
+				} else if (args[i].equals("-mmap")) {
+					mapped = true;
+				} else if (args[i].equals("-restart")) {
+					i++;
+					restarts = args[i];
+				} else if (args[i].equals("-encoding")) {
+					i++;
+					encoding = args[i];
+				} else if (args[i].equals("-strategy")) {
+					i++;
+					strategy = args[i];
+				} else if (args[i].equals("-selection")) {
+					i++;
+					selection = args[i];
+				} else if (args[i].equals("-pick-given")) {
+					i++;
+					pickGiven = Integer.parseInt(args[i]);
+				} else if (args[i].equals("-threads")) {
+					i++;
+					threads = Integer.parseInt(args[i]);
+				} else if (args[i].equals("-share-size")) {
+					i++;
+					shareSize = Integer.parseInt(args[i]);
+				} else if (args[i].equals("-share-lbd")) {
+					i++;
+					shareLBD = Integer.parseInt(args[i]);
+				} else if (args[i].equals("-cube-depth")) {
+					i++;
+					cubeDepth = Integer.parseInt(args[i]);
+				} else if (args[i].equals("-queue")) {
+					i++;
+					queue = args[i];
+				} else if (args[i].equals("-jobs")) {
+					i++;
+					jobs = Integer.parseInt(args[i]);
+				} else {
+					wrongArguments();
 				}
 
 			}
 
-		} catch (ArrayIndexOutOfBoundsException e) {
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
 			wrongArguments();
 		}
 
+		/**
+		 * Solve every file in a directory or manifest, which is not itself an
+		 * input file
+		 */
+
+		if (mode.equals("-batch")) {
+
+			performBatch();
+			System.exit(0);
+		}
+
 		if (!format.equals("-dimacs")) {
 			input = ExpressionParser.parseFile(fileName);
 		} else {
-			input = ExpressionParser.parseDIMACS(fileName);
+			table = new VariableTable();
+
+			if (mapped) {
+				arena = ExpressionParser.parseDIMACSMapped(fileName, table);
+			} else {
+				arena = ExpressionParser.parseDIMACS(fileName, table);
+			}
+			input = "p cnf " + table.size() + " " + arena.getClauseCount();
 		}
 
 		if (debug)
@@ -86,6 +178,28 @@ public class TheoremProver {
 			System.exit(0);
 		}
 
+		/**
+		 * Race several differently configured solvers to find a model of the
+		 * parsed expression, taking the answer of the first to finish
+		 */
+
+		if (mode.equals("-portfolio")) {
+
+			performPortfolio();
+			System.exit(0);
+		}
+
+		/**
+		 * Split the clauses into cubes and solve them on several threads, or
+		 * help solve the cubes another process put in a queue
+		 */
+
+		if (mode.equals("-cube") || mode.equals("-conquer")) {
+
+			performCubeAndConquer();
+			System.exit(0);
+		}
+
 		/**
 		 * Compare the time of DPLL and resolution, trying to disprove the
 		 * negation with DPLL and then performing resolution
@@ -112,6 +226,10 @@ public class TheoremProver {
 		System.out.println("   -res         Perform a resolution proof");
 		System.out.println("   -sat         Use DPLL to find a model");
 		System.out.println("   -cmp         Compare the runtimes of Resolution and DPLL");
+		System.out.println("   -portfolio   Run several SAT solvers at once to find a model");
+		System.out.println("   -cube        Split into cubes by lookahead and solve them on several threads");
+		System.out.println("   -conquer     Help solve the cubes in a queue written by -cube");
+		System.out.println("   -batch       Find out if every file in a directory or manifest is satisfiable");
 		System.out.println("Formats supported:");
 		System.out.println("   -exp         Ordinary linear expression format");
 		System.out.println("                (((A | B) & C) -> D)");
@@ -120,9 +238,45 @@ public class TheoremProver {
 		System.out.println("   -dimacs      DIMACS file format (DPLL and CNF only)");
 		System.out.println("Other arguments (optional):");
 		System.out.println("   -debug       Use debug mode");
+		System.out.println("   -solver <s>  Backend used by -sat: dpll (default) or cdcl");
+		System.out.println("   -branch <h>  CDCL branching heuristic: vsids (default) or ordered");
+		System.out.println("   -phase-saving  Reuse the last polarity of a variable when deciding on it (CDCL)");
+		System.out.println("   -restart <r> CDCL restart policy: luby (default), glucose or none");
+		System.out.println("   -mmap        Memory-map DIMACS input and parse it in parallel");
+		System.out.println("   -encoding <e>  Clause normal form encoding: distribute (default), tseitin or pg");
+		System.out.println("   -strategy <s>  Resolution strategy: none (default), sos, unit or ordered");
+		System.out.println("   -selection <s> Resolution clause selection: age (default), weight or ratio");
+		System.out.println("   -pick-given <n>  Clauses selected by weight for each one by age (ratio, default 4)");
+		System.out.println("   -threads <n> Threads used to generate resolvents or solve cubes (default 1)");
+		System.out.println("   -share-size <n>  Largest learned clause shared in a portfolio (default 8, 0 for none)");
+		System.out.println("   -share-lbd <n>   Largest LBD of a learned clause shared in a portfolio (default 2)");
+		System.out.println("   -cube-depth <n>  Greatest number of decisions in a cube (default 8)");
+		System.out.println("   -queue <dir> Directory to write cubes to and solve them from, shared between processes");
+		System.out.println("   -jobs <n>    Files solved at once in batch mode (default: number of processors)");
 		System.exit(1);
 	}
 
+	/**
+	 * Parse the input expression, exiting with an error if it is malformed
+	 * 
+	 * @param conc
+	 *            if the input has a conclusion to combine with premises
+	 * @param negate
+	 *            whether to negate the conclusion
+	 * @return the parsed expression
+	 */
+
+	public static LogicExpression parseInput(boolean conc, boolean negate) {
+
+		try {
+			return ExpressionParser.parseExpression(input, conc, negate);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+			return null;
+		}
+	}
+
 	/**
 	 * Prepare an input for conversion to clause normal form
 	 */
@@ -133,14 +287,14 @@ public class TheoremProver {
 			if (debug)
 				System.out.println("Parsing expression, combining premises with non-negated setlusion");
 
-			parsedExpression = ExpressionParser.parseExpression(input, true, false);
+			parsedExpression = parseInput(true, false);
 
 		} else if (format.equals("-exp")) {
 
 			if (debug)
 				System.out.println("Parsing expression");
 
-			parsedExpression = ExpressionParser.parseExpression(input, false, false);
+			parsedExpression = parseInput(false, false);
 		}
 
 		if (debug)
@@ -152,7 +306,7 @@ public class TheoremProver {
 		if (!format.equals("-dimacs")) {
 			convertToCNF(parsedExpression);
 		} else {
-			convertToCNF(input);
+			convertToCNF(arena, table);
 		}
 	}
 
@@ -166,7 +320,22 @@ public class TheoremProver {
 
 	public static ClauseNormalForm convertToCNF(LogicExpression expression) {
 
-		ClauseNormalForm cnf = LogicMethods.generateClauseNormalForm(expression);
+		ClauseNormalForm cnf;
+
+		if (encoding.equals("distribute")) {
+			cnf = LogicMethods.generateClauseNormalForm(expression);
+		} else if (encoding.equals("tseitin") || encoding.equals("pg")) {
+
+			encoder = new TseitinEncoder(encoding.equals("pg"));
+			cnf = encoder.encode(expression);
+
+			if (debug)
+				System.out.println("Introduced " + encoder.getFreshAtoms() + " fresh atoms");
+
+		} else {
+			wrongArguments();
+			return null;
+		}
 
 		System.out.println("Clause Normal Form:\n" + cnf);
 
@@ -174,16 +343,44 @@ public class TheoremProver {
 	}
 
 	/**
-	 * Convert an expression in DIMACS to clause normal form
+	 * Convert part of an expression already converted into clause normal form,
+	 * giving the clauses of the clause normal form that come from it
+	 * 
+	 * @param expression
+	 *            the part of the expression
+	 * @return the clause normal form of the part
+	 */
+
+	public static ClauseNormalForm convertSupport(LogicExpression expression) {
+
+		ClauseNormalForm cnf;
+
+		// the encoder reuses the atoms it gave each subexpression before
+		if (encoder == null) {
+			cnf = LogicMethods.generateClauseNormalForm(expression);
+		} else {
+			cnf = encoder.encode(expression);
+		}
+
+		if (debug)
+			System.out.println("Set of support:\n" + cnf);
+
+		return cnf;
+	}
+
+	/**
+	 * Convert clauses read from DIMACS to clause normal form
 	 * 
-	 * @param dimacs
-	 *            the dimacs expression
+	 * @param arena
+	 *            the clause arena
+	 * @param table
+	 *            the table the variables were interned in
 	 * @return the clause normal form
 	 */
 
-	public static ClauseNormalForm convertToCNF(String dimacs) {
+	public static ClauseNormalForm convertToCNF(ClauseArena arena, VariableTable table) {
 
-		ClauseNormalForm cnf = ExpressionParser.convertDIMACS(dimacs);
+		ClauseNormalForm cnf = arena.toClauseNormalForm(table);
 
 		System.out.println("Clause Normal Form:\n" + cnf);
 
@@ -205,14 +402,14 @@ public class TheoremProver {
 
 			System.out.println("Parsing expression and negating it");
 
-			parsedExpression = ExpressionParser.parseExpression(input, false, false);
+			parsedExpression = parseInput(false, false);
 			parsedExpression = LogicMethods.negate(parsedExpression);
 
 		} else {
 
 			System.out.println("Parsing expression and negating conclusion");
 
-			parsedExpression = ExpressionParser.parseExpression(input, true, true);
+			parsedExpression = parseInput(true, true);
 		}
 
 		if (debug)
@@ -223,9 +420,19 @@ public class TheoremProver {
 
 		ClauseNormalForm cnf = convertToCNF(parsedExpression);
 
+		ClauseNormalForm support = null;
+
+		// the set of support is the negated conclusion, which is only
+		// separate from the premises in a set
+		if (strategy.equals("sos") && format.equals("-set")) {
+
+			ArrayList<LogicExpression> set = ExpressionParser.parseSet(input);
+			support = convertSupport(LogicMethods.negate(set.get(set.size() - 1)));
+		}
+
 		System.out.println("Performing a resolution proof");
 
-		Result result = resolutionProof(cnf);
+		Result result = resolutionProof(cnf, support);
 
 		if (result == Result.UNSATISFIABLE) {
 			System.out.println("Initial expression is UNSATISFIABLE");
@@ -245,8 +452,22 @@ public class TheoremProver {
 	 */
 
 	public static Result resolutionProof(ClauseNormalForm cnf) {
+		return resolutionProof(cnf, null);
+	}
 
-		ResolutionProof proof = LogicMethods.resolutionProof(cnf);
+	/**
+	 * Perform a resolution proof with a set of support
+	 * 
+	 * @param cnf
+	 *            the clause normal form
+	 * @param support
+	 *            the set of support, or null if every clause is in it
+	 * @return the result
+	 */
+
+	public static Result resolutionProof(ClauseNormalForm cnf, ClauseNormalForm support) {
+
+		ResolutionProof proof = LogicMethods.resolutionProof(createProver(cnf, support));
 
 		System.out.println(proof);
 
@@ -266,11 +487,11 @@ public class TheoremProver {
 
 		if (format.equals("-exp")) {
 
-			parsedExpression = ExpressionParser.parseExpression(input, false, false);
+			parsedExpression = parseInput(false, false);
 
 		} else if (format.equals("-set")) {
 
-			parsedExpression = ExpressionParser.parseExpression(input, true, false);
+			parsedExpression = parseInput(true, false);
 		}
 
 		if (debug)
@@ -278,17 +499,27 @@ public class TheoremProver {
 
 		ClauseNormalForm cnf = null;
 
-		if (format.equals("-dimacs")) {
-			cnf = convertToCNF(input);
-
-		} else {
+		// the CDCL solver works on the clause arena directly, so large DIMACS
+		// inputs are only rendered as a clause normal form when debugging
+		if (!format.equals("-dimacs")) {
 			cnf = convertToCNF(parsedExpression);
+		} else if (!solver.equals("cdcl") || debug) {
+			cnf = convertToCNF(arena, table);
+		}
 
+		if (solver.equals("cdcl")) {
+			System.out.println("Performing CDCL to find a model");
+		} else {
+			System.out.println("Performing DPLL to find a model");
 		}
 
-		System.out.println("Performing DPLL to find a model");
+		Result result = null;
 
-		Result result = davisPutnam(cnf);
+		if (format.equals("-dimacs") && solver.equals("cdcl")) {
+			result = cdcl(arena, table);
+		} else {
+			result = davisPutnam(cnf);
+		}
 
 		if (result == Result.UNSATISFIABLE) {
 			System.out.println("Initial expression is UNSATISFIABLE");
@@ -299,6 +530,212 @@ public class TheoremProver {
 		return result;
 	}
 
+	/**
+	 * Run a portfolio of SAT solvers with the input string
+	 */
+
+	public static Result performPortfolio() {
+
+		if (format.equals("-exp")) {
+
+			parsedExpression = parseInput(false, false);
+
+		} else if (format.equals("-set")) {
+
+			parsedExpression = parseInput(true, false);
+		}
+
+		if (debug)
+			System.out.println("Converting to clause normal form");
+
+		ClauseNormalForm cnf;
+
+		if (!format.equals("-dimacs")) {
+			cnf = convertToCNF(parsedExpression);
+		} else {
+			cnf = convertToCNF(arena, table);
+		}
+
+		ClauseExchange exchange = null;
+
+		if (shareSize > 0 || shareLBD > 0) {
+			exchange = new ClauseExchange(shareSize, shareLBD);
+		}
+
+		Portfolio portfolio = new Portfolio(cnf, exchange);
+
+		System.out.println("Running a portfolio of " + portfolio.size() + " solvers to find a model");
+
+		Portfolio.Outcome outcome = portfolio.solve();
+
+		System.out.println("Solved by " + outcome.getSolver());
+
+		if (outcome.getModel() != null) {
+			System.out.println("Model:\n" + outcome.getModel());
+		}
+
+		if (outcome.getStatistics() != null) {
+			System.out.println(outcome.getStatistics());
+		}
+
+		if (outcome.getResult() == Result.UNSATISFIABLE) {
+			System.out.println("Initial expression is UNSATISFIABLE");
+		} else {
+			System.out.println("Initial expression is SATISFIABLE");
+		}
+
+		return outcome.getResult();
+	}
+
+	/**
+	 * Find out if every file in the directory or manifest named by the file
+	 * name is satisfiable, writing one line per file
+	 */
+
+	public static void performBatch() {
+
+		if (jobs < 1 || !(format.equals("-exp") || format.equals("-set") || format.equals("-dimacs"))) {
+			wrongArguments();
+		}
+
+		Function<LogicExpression, ClauseNormalForm> conversion = null;
+
+		if (encoding.equals("distribute")) {
+			conversion = LogicMethods::generateClauseNormalForm;
+		} else if (encoding.equals("tseitin") || encoding.equals("pg")) {
+			boolean plaistedGreenbaum = encoding.equals("pg");
+			conversion = exp -> new TseitinEncoder(plaistedGreenbaum).encode(exp);
+		} else {
+			wrongArguments();
+		}
+
+		BiFunction<ClauseArena, VariableTable, LogicModel> batchSolver;
+
+		if (solver.equals("cdcl")) {
+			batchSolver = (clauses, variables) -> createSolver(clauses, variables).solve();
+		} else {
+			batchSolver = (clauses, variables) -> LogicMethods.davisPutnam(clauses.toClauseNormalForm(variables));
+		}
+
+		BatchSolver batch = new BatchSolver(format, jobs, conversion, batchSolver);
+		long start = System.nanoTime();
+
+		try {
+			batch.solve(Paths.get(fileName), System.out);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+
+		long time = (System.nanoTime() - start) / 1000000;
+
+		System.out.println("Solved " + (batch.getSatisfiable() + batch.getUnsatisfiable()) + " files in " + time
+				+ " ms: " + batch.getSatisfiable() + " satisfiable, " + batch.getUnsatisfiable() + " unsatisfiable, "
+				+ batch.getErrors() + " errors");
+	}
+
+	/**
+	 * Split the input into cubes and solve them, or solve the cubes in a queue
+	 * 
+	 * @return the result
+	 */
+
+	public static Result performCubeAndConquer() {
+
+		if (format.equals("-exp")) {
+
+			parsedExpression = parseInput(false, false);
+
+		} else if (format.equals("-set")) {
+
+			parsedExpression = parseInput(true, false);
+		}
+
+		if (!format.equals("-dimacs")) {
+
+			if (debug)
+				System.out.println("Converting to clause normal form");
+
+			ClauseNormalForm cnf = convertToCNF(parsedExpression);
+
+			table = new VariableTable(cnf);
+			arena = ClauseArena.fromClauseNormalForm(cnf, table);
+		}
+
+		if (threads < 1 || cubeDepth < 0 || (mode.equals("-conquer") && queue == null)) {
+			wrongArguments();
+		}
+
+		VariableTable variables = table;
+		Function<ClauseArena, LogicModel> cubeSolver;
+
+		if (solver.equals("cdcl")) {
+			cubeSolver = copy -> createSolver(copy, variables).solve();
+		} else {
+			cubeSolver = copy -> LogicMethods.davisPutnam(copy.toClauseNormalForm(variables));
+		}
+
+		CubeAndConquer conquer = new CubeAndConquer(arena, table, cubeSolver);
+		String problem = queue == null ? null : CubeQueue.identify(arena, table);
+		LogicModel model = null;
+
+		try {
+
+			if (mode.equals("-cube")) {
+
+				LookaheadSplitter splitter = new LookaheadSplitter(arena, table);
+				ArrayList<int[]> cubes = splitter.split(cubeDepth);
+
+				System.out.println("Split into " + cubes.size() + " cubes: " + splitter.getLookaheads()
+						+ " lookaheads, " + splitter.getFailedLiterals() + " failed literals, "
+						+ splitter.getRefuted() + " branches refuted");
+
+				if (debug) {
+					for (int[] cube : cubes) {
+						System.out.println("Cube: " + table.toClause(cube));
+					}
+				}
+
+				if (queue == null) {
+					model = conquer.conquer(cubes, threads);
+				} else {
+
+					CubeQueue cubeQueue = new CubeQueue(Paths.get(queue), problem);
+
+					cubeQueue.reset();
+
+					for (int[] cube : cubes) {
+						cubeQueue.offer(cube);
+					}
+
+					cubeQueue.publish();
+
+					System.out.println("Wrote " + cubes.size() + " cubes to " + queue);
+
+					model = conquer.conquer(cubeQueue, threads);
+				}
+
+			} else {
+				model = conquer.conquer(new CubeQueue(Paths.get(queue), problem), threads);
+			}
+
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+
+		System.out.println("Solved " + conquer.getSolved() + " cubes, " + conquer.getRefuted() + " refuted");
+
+		if (model == null) {
+			System.out.println("Initial expression is UNSATISFIABLE");
+			return Result.UNSATISFIABLE;
+		} else {
+			System.out.println("Model:\n" + model);
+			System.out.println("Initial expression is SATISFIABLE");
+			return Result.SATISFIABLE;
+		}
+	}
+
 	/**
 	 * Perform DPLL
 	 * 
@@ -309,6 +746,11 @@ public class TheoremProver {
 
 	public static Result davisPutnam(ClauseNormalForm cnf) {
 
+		if (solver.equals("cdcl")) {
+			VariableTable variables = new VariableTable(cnf);
+			return cdcl(ClauseArena.fromClauseNormalForm(cnf, variables), variables);
+		}
+
 		LogicModel model = LogicMethods.davisPutnam(cnf);
 
 		if (model == null) {
@@ -319,6 +761,118 @@ public class TheoremProver {
 		}
 	}
 
+	/**
+	 * Perform CDCL
+	 * 
+	 * @param arena
+	 *            the clause arena
+	 * @param table
+	 *            the table the variables were interned in
+	 * @return the result
+	 */
+
+	public static Result cdcl(ClauseArena arena, VariableTable table) {
+
+		CDCLSolver cdcl = createSolver(arena, table);
+		LogicModel model = cdcl.solve();
+
+		if (model != null) {
+			System.out.println("Model:\n" + model);
+		}
+
+		System.out.println(cdcl.getStatistics());
+
+		if (model == null) {
+			return Result.UNSATISFIABLE;
+		} else {
+			return Result.SATISFIABLE;
+		}
+	}
+
+	/**
+	 * Create a resolution prover configured by the command line arguments
+	 * 
+	 * @param cnf
+	 *            the clause normal form
+	 * @param support
+	 *            the set of support, or null if every clause is in it
+	 * @return the prover
+	 */
+
+	public static ResolutionProver createProver(ClauseNormalForm cnf, ClauseNormalForm support) {
+
+		ClauseQueue queue = null;
+
+		if (selection.equals("age")) {
+			queue = new ClauseQueue(ClauseQueue.Selection.AGE, pickGiven);
+		} else if (selection.equals("weight")) {
+			queue = new ClauseQueue(ClauseQueue.Selection.WEIGHT, pickGiven);
+		} else if (selection.equals("ratio") && pickGiven >= 0) {
+			queue = new ClauseQueue(ClauseQueue.Selection.RATIO, pickGiven);
+		} else {
+			wrongArguments();
+		}
+
+		ResolutionProver prover = null;
+
+		if (strategy.equals("none")) {
+			prover = new ResolutionProver(cnf, support, ResolutionProver.Strategy.NONE, queue);
+		} else if (strategy.equals("sos")) {
+			prover = new ResolutionProver(cnf, support, ResolutionProver.Strategy.SET_OF_SUPPORT, queue);
+		} else if (strategy.equals("unit")) {
+			prover = new ResolutionProver(cnf, support, ResolutionProver.Strategy.UNIT_PREFERENCE, queue);
+		} else if (strategy.equals("ordered")) {
+			prover = new ResolutionProver(cnf, support, ResolutionProver.Strategy.ORDERED, queue);
+		} else {
+			wrongArguments();
+		}
+
+		if (threads < 1) {
+			wrongArguments();
+		}
+
+		prover.setThreads(threads);
+
+		return prover;
+	}
+
+	/**
+	 * Create a CDCL solver configured by the command line arguments
+	 * 
+	 * @param arena
+	 *            the clause arena
+	 * @param table
+	 *            the table the variables were interned in
+	 * @return the solver
+	 */
+
+	public static CDCLSolver createSolver(ClauseArena arena, VariableTable table) {
+
+		CDCLSolver cdcl = new CDCLSolver(arena, table);
+
+		if (branching.equals("ordered")) {
+			cdcl.setHeuristic(new OrderedHeuristic());
+		} else if (branching.equals("vsids")) {
+			cdcl.setHeuristic(new VSIDSHeuristic());
+		} else {
+			wrongArguments();
+		}
+
+		cdcl.setPhase(true, phaseSaving);
+
+		if (restarts.equals("luby")) {
+			cdcl.setRestartPolicy(new LubyRestarts());
+		} else if (restarts.equals("glucose")) {
+			cdcl.setRestartPolicy(new GlucoseRestarts());
+		} else if (restarts.equals("none")) {
+			cdcl.setRestartPolicy(new NoRestarts());
+		} else {
+			wrongArguments();
+		}
+
+		return cdcl;
+	}
+
 	/**
 	 * Compare the runtimes of resolution and DPLL
 	 */
@@ -332,12 +886,12 @@ public class TheoremProver {
 
 		if (format.equals("-exp")) {
 
-			parsedExpression = ExpressionParser.parseExpression(input, false, true);
+			parsedExpression = parseInput(false, true);
 			parsedExpression = LogicMethods.negate(parsedExpression);
 
 		} else if (format.equals("-set")) {
 
-			parsedExpression = ExpressionParser.parseExpression(input, true, true);
+			parsedExpression = parseInput(true, true);
 		}
 
 		ClauseNormalForm cnf = convertToCNF(parsedExpression);
@@ -0,0 +1,442 @@
+package reasoning;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import reasoning.LogicExpression.ExpressionType;
+
+/**
+ * Converts expressions into clause normal form by introducing a fresh atom for
+ * every subexpression (the Tseitin encoding). The result is only
+ * equisatisfiable with the input, but its size is linear rather than
+ * exponential. With the Plaisted-Greenbaum optimisation a subexpression that
+ * only occurs with one polarity is only defined in that direction
+ *
+ * @author George Kaye
+ *
+ */
+
+public class TseitinEncoder {
+
+	private static final int POSITIVE = 1;
+	private static final int NEGATIVE = 2;
+	private static final int BOTH = POSITIVE | NEGATIVE;
+
+	private static final String PREFIX = "TS";
+
+	private boolean plaistedGreenbaum;
+	private HashSet<String> names;
+	private int counter;
+
+	private HashMap<LogicExpression, LogicExpression> definitions;
+	private HashMap<LogicExpression, Integer> polarities;
+	private HashSet<HashSet<LogicExpression>> clauses;
+	private ArrayDeque<LogicExpression> pending;
+	private IntList pendingPolarities;
+
+	/**
+	 * Create a new encoder
+	 *
+	 * @param plaistedGreenbaum
+	 *            whether to only define subexpressions in the polarities they
+	 *            occur in
+	 */
+
+	public TseitinEncoder(boolean plaistedGreenbaum) {
+		this.plaistedGreenbaum = plaistedGreenbaum;
+		this.names = new HashSet<>();
+		this.counter = 0;
+		this.definitions = new HashMap<>();
+		this.polarities = new HashMap<>();
+	}
+
+	/**
+	 * Make sure no fresh atom is given the name of an atom in an expression.
+	 * Expressions passed to encode are reserved automatically, but expressions
+	 * encoded later should be reserved before the first encoding
+	 *
+	 * @param exp
+	 *            the expression
+	 */
+
+	public void reserveNames(LogicExpression exp) {
+
+		ArrayDeque<LogicExpression> stack = new ArrayDeque<>();
+		HashSet<LogicExpression> seen = new HashSet<>();
+
+		stack.push(exp);
+
+		while (!stack.isEmpty()) {
+
+			LogicExpression next = stack.pop();
+
+			if (next.getType() == ExpressionType.ATOM) {
+				names.add(next.getName());
+			} else if (seen.add(next)) {
+				for (LogicExpression term : next.getTerms()) {
+					stack.push(term);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the number of fresh atoms introduced so far
+	 *
+	 * @return the number of fresh atoms
+	 */
+
+	public int getFreshAtoms() {
+		return definitions.size();
+	}
+
+	/**
+	 * Encode an expression into clause normal form. Subexpressions already
+	 * defined by an earlier call reuse their atom and definition
+	 *
+	 * @param exp
+	 *            the expression
+	 * @return the clauses asserting the expression and defining its
+	 *         subexpressions
+	 */
+
+	public ClauseNormalForm encode(LogicExpression exp) {
+
+		reserveNames(exp);
+
+		clauses = new HashSet<>();
+		pending = new ArrayDeque<>();
+		pendingPolarities = new IntList();
+
+		assertExpression(exp);
+
+		// define every construction used, which may use further constructions
+		while (!pending.isEmpty()) {
+			define(pending.pop(), pendingPolarities.pop());
+		}
+
+		return new ClauseNormalForm(clauses);
+	}
+
+	/**
+	 * Add clauses asserting an expression is true, splitting conjunctions and
+	 * turning disjunctions into a single clause instead of defining them
+	 *
+	 * @param exp
+	 *            the expression
+	 */
+
+	private void assertExpression(LogicExpression exp) {
+
+		ArrayDeque<LogicExpression> stack = new ArrayDeque<>();
+		stack.push(exp);
+
+		while (!stack.isEmpty()) {
+
+			LogicExpression next = stack.pop();
+			ArrayList<LogicExpression> clause = new ArrayList<>();
+
+			if (next.getType() == ExpressionType.CONSTRUCTION && next.getNegations() == 0
+					&& next.getTerminal() == Terminal.AND) {
+
+				for (LogicExpression term : next.getTerms()) {
+					stack.push(term);
+				}
+
+				continue;
+
+			} else if (next.getType() == ExpressionType.CONSTRUCTION && next.getNegations() == 0
+					&& next.getTerminal() == Terminal.OR) {
+
+				for (LogicExpression term : next.getTerms()) {
+					clause.add(literal(term, POSITIVE));
+				}
+
+			} else {
+				clause.add(literal(next, POSITIVE));
+			}
+
+			addClause(clause);
+		}
+	}
+
+	/**
+	 * Get the literal standing for an expression, scheduling its definition if
+	 * necessary
+	 *
+	 * @param exp
+	 *            the expression
+	 * @param polarity
+	 *            the polarities the expression occurs in
+	 * @return an atom with zero or one negations
+	 */
+
+	private LogicExpression literal(LogicExpression exp, int polarity) {
+
+		boolean negated = exp.getNegations() % 2 == 1;
+
+		if (exp.getType() == ExpressionType.ATOM) {
+			return ExpressionFactory.atom(exp.getName(), negated ? 1 : 0);
+		}
+
+		if (negated) {
+			polarity = flip(polarity);
+		}
+
+		LogicExpression construction = ExpressionFactory.construction(exp.getTerms(), exp.getTerminal());
+		LogicExpression atom = definitions.get(construction);
+
+		if (atom == null) {
+			atom = freshAtom();
+			definitions.put(construction, atom);
+			polarities.put(construction, 0);
+		}
+
+		pending.push(construction);
+		pendingPolarities.add(polarity);
+
+		if (negated) {
+			return complement(atom);
+		}
+
+		return atom;
+	}
+
+	/**
+	 * Add the clauses defining the fresh atom of an (unnegated) construction in
+	 * any polarity it has not been defined in yet
+	 *
+	 * @param exp
+	 *            the construction
+	 * @param polarity
+	 *            the polarities the construction occurs in
+	 */
+
+	private void define(LogicExpression exp, int polarity) {
+
+		if (!plaistedGreenbaum) {
+			polarity = BOTH;
+		}
+
+		LogicExpression atom = definitions.get(exp);
+		int defined = polarities.get(exp);
+		int missing = polarity & ~defined;
+
+		if (missing == 0) {
+			return;
+		}
+
+		polarities.put(exp, defined | missing);
+
+		ArrayList<LogicExpression> terms = exp.getTerms();
+		LogicExpression notAtom = complement(atom);
+
+		switch (exp.getTerminal()) {
+		case AND: {
+
+			ArrayList<LogicExpression> literals = literals(terms, missing);
+
+			// atom -> each term
+			if ((missing & POSITIVE) != 0) {
+				for (LogicExpression literal : literals) {
+					addClause(notAtom, literal);
+				}
+			}
+
+			// all terms -> atom
+			if ((missing & NEGATIVE) != 0) {
+
+				ArrayList<LogicExpression> clause = complements(literals);
+				clause.add(atom);
+				addClause(clause);
+			}
+
+			break;
+		}
+		case OR: {
+
+			ArrayList<LogicExpression> literals = literals(terms, missing);
+
+			// atom -> some term
+			if ((missing & POSITIVE) != 0) {
+
+				ArrayList<LogicExpression> clause = new ArrayList<>(literals);
+				clause.add(notAtom);
+				addClause(clause);
+			}
+
+			// each term -> atom
+			if ((missing & NEGATIVE) != 0) {
+				for (LogicExpression literal : literals) {
+					addClause(atom, complement(literal));
+				}
+			}
+
+			break;
+		}
+		case IMPLICATION: {
+
+			LogicExpression left = literal(terms.get(0), flip(missing));
+			LogicExpression right = literal(terms.get(1), missing);
+
+			if ((missing & POSITIVE) != 0) {
+				addClause(notAtom, complement(left), right);
+			}
+
+			if ((missing & NEGATIVE) != 0) {
+				addClause(atom, left);
+				addClause(atom, complement(right));
+			}
+
+			break;
+		}
+		case EQUIVALENCE: {
+
+			LogicExpression left = literal(terms.get(0), BOTH);
+			LogicExpression right = literal(terms.get(1), BOTH);
+
+			if ((missing & POSITIVE) != 0) {
+				addClause(notAtom, complement(left), right);
+				addClause(notAtom, left, complement(right));
+			}
+
+			if ((missing & NEGATIVE) != 0) {
+				addClause(atom, left, right);
+				addClause(atom, complement(left), complement(right));
+			}
+
+			break;
+		}
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Get the literals of a list of expressions
+	 *
+	 * @param terms
+	 *            the expressions
+	 * @param polarity
+	 *            the polarities they occur in
+	 * @return the literals
+	 */
+
+	private ArrayList<LogicExpression> literals(ArrayList<LogicExpression> terms, int polarity) {
+
+		ArrayList<LogicExpression> literals = new ArrayList<>();
+
+		for (LogicExpression term : terms) {
+			literals.add(literal(term, polarity));
+		}
+
+		return literals;
+	}
+
+	/**
+	 * Get the complements of a list of literals
+	 *
+	 * @param literals
+	 *            the literals
+	 * @return the complemented literals
+	 */
+
+	private static ArrayList<LogicExpression> complements(ArrayList<LogicExpression> literals) {
+
+		ArrayList<LogicExpression> complements = new ArrayList<>();
+
+		for (LogicExpression literal : literals) {
+			complements.add(complement(literal));
+		}
+
+		return complements;
+	}
+
+	/**
+	 * Get the complement of a literal
+	 *
+	 * @param literal
+	 *            an atom with zero or one negations
+	 * @return the atom with the other number of negations
+	 */
+
+	private static LogicExpression complement(LogicExpression literal) {
+		return ExpressionFactory.atom(literal.getName(), 1 - literal.getNegations());
+	}
+
+	/**
+	 * Swap the positive and negative polarities
+	 *
+	 * @param polarity
+	 *            the polarities
+	 * @return the flipped polarities
+	 */
+
+	private static int flip(int polarity) {
+		return ((polarity & POSITIVE) << 1) | ((polarity & NEGATIVE) >> 1);
+	}
+
+	/**
+	 * Create an atom whose name is not used anywhere else
+	 *
+	 * @return the fresh atom
+	 */
+
+	private LogicExpression freshAtom() {
+
+		String name;
+
+		do {
+			counter++;
+			name = PREFIX + counter;
+		} while (names.contains(name));
+
+		names.add(name);
+
+		return ExpressionFactory.atom(name);
+	}
+
+	/**
+	 * Add a clause of literals, ignoring tautologies
+	 *
+	 * @param literals
+	 *            the literals
+	 */
+
+	private void addClause(LogicExpression... literals) {
+
+		ArrayList<LogicExpression> clause = new ArrayList<>();
+
+		for (LogicExpression literal : literals) {
+			clause.add(literal);
+		}
+
+		addClause(clause);
+	}
+
+	/**
+	 * Add a clause of literals, ignoring tautologies
+	 *
+	 * @param literals
+	 *            the literals
+	 */
+
+	private void addClause(ArrayList<LogicExpression> literals) {
+
+		HashSet<LogicExpression> clause = new HashSet<>();
+
+		for (LogicExpression literal : literals) {
+
+			if (clause.contains(complement(literal))) {
+				return;
+			}
+
+			clause.add(literal);
+		}
+
+		clauses.add(clause);
+	}
+
+}
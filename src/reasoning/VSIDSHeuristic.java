@@ -0,0 +1,134 @@
+package reasoning;
+
+import java.util.Random;
+
+/**
+ * The (exponential) variable state independent decaying sum heuristic. Every
+ * variable involved in a conflict has its activity bumped, and the bump grows
+ * after each conflict so that older activity decays. The most active
+ * unassigned variable is chosen for the next decision
+ * 
+ * @author George Kaye
+ *
+ */
+
+public class VSIDSHeuristic implements BranchingHeuristic {
+
+	private static final double RESCALE_LIMIT = 1e100;
+
+	private double decay;
+	private double increment;
+	private double[] activity;
+	private VariableHeap heap;
+	private Random random;
+
+	/**
+	 * Create a new VSIDS heuristic with the usual decay factor of 0.95
+	 */
+
+	public VSIDSHeuristic() {
+		this(0.95);
+	}
+
+	/**
+	 * Create a new VSIDS heuristic
+	 * 
+	 * @param decay
+	 *            the decay factor, between 0 and 1
+	 */
+
+	public VSIDSHeuristic(double decay) {
+		this.decay = decay;
+	}
+
+	/**
+	 * Create a new VSIDS heuristic that breaks ties between variables that
+	 * have not been in a conflict randomly, so that solvers with different
+	 * seeds explore different parts of the search space
+	 * 
+	 * @param decay
+	 *            the decay factor, between 0 and 1
+	 * @param seed
+	 *            the seed of the random tie breaks
+	 */
+
+	public VSIDSHeuristic(double decay, long seed) {
+		this.decay = decay;
+		this.random = new Random(seed);
+	}
+
+	@Override
+	public void initialise(int variables) {
+
+		this.increment = 1;
+		this.activity = new double[variables];
+		this.heap = new VariableHeap(activity);
+
+		// small enough to be outweighed by the first bump
+		if (random != null) {
+			for (int i = 0; i < variables; i++) {
+				activity[i] = random.nextDouble() * 1e-3;
+			}
+		}
+
+		for (int i = 0; i < variables; i++) {
+			heap.insert(i);
+		}
+	}
+
+	@Override
+	public int pickBranchVariable(CDCLSolver solver) {
+
+		while (!heap.isEmpty()) {
+
+			int variable = heap.removeMax();
+
+			if (!solver.isAssigned(variable)) {
+				return variable;
+			}
+		}
+
+		return -1;
+	}
+
+	@Override
+	public void bump(int variable) {
+
+		activity[variable] += increment;
+
+		if (activity[variable] > RESCALE_LIMIT) {
+
+			// scale everything down to stop the activities overflowing
+			for (int i = 0; i < activity.length; i++) {
+				activity[i] *= 1 / RESCALE_LIMIT;
+			}
+
+			increment *= 1 / RESCALE_LIMIT;
+		}
+
+		heap.increased(variable);
+	}
+
+	@Override
+	public void conflict() {
+		increment /= decay;
+	}
+
+	@Override
+	public void unassign(int variable) {
+		heap.insert(variable);
+	}
+
+	/**
+	 * Get the activity of a variable
+	 * 
+	 * @param variable
+	 *            the variable
+	 * @return the activity
+	 */
+
+	public double getActivity(int variable) {
+		return activity[variable];
+	}
+
+}
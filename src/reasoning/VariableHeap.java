@@ -0,0 +1,179 @@
+package reasoning;
+
+import java.util.Arrays;
+
+/**
+ * A binary max-heap of variables ordered by an array of activities, indexed so
+ * that a variable's position can be found in constant time
+ * 
+ * @author George Kaye
+ *
+ */
+
+public class VariableHeap {
+
+	private double[] activity;
+	private IntList heap;
+	private int[] indices;
+
+	/**
+	 * Create a new (empty) heap
+	 * 
+	 * @param activity
+	 *            the activities of the variables, shared with the owner of the
+	 *            heap
+	 */
+
+	public VariableHeap(double[] activity) {
+		this.activity = activity;
+		this.heap = new IntList(Math.max(activity.length, 1));
+		this.indices = new int[activity.length];
+		Arrays.fill(indices, -1);
+	}
+
+	/**
+	 * Find out if a variable is in the heap
+	 * 
+	 * @param variable
+	 *            the variable
+	 * @return whether it is in the heap
+	 */
+
+	public boolean contains(int variable) {
+		return indices[variable] >= 0;
+	}
+
+	/**
+	 * Find out if the heap is empty
+	 * 
+	 * @return whether the heap is empty
+	 */
+
+	public boolean isEmpty() {
+		return heap.isEmpty();
+	}
+
+	/**
+	 * Get the number of variables in the heap
+	 * 
+	 * @return the size of the heap
+	 */
+
+	public int size() {
+		return heap.size();
+	}
+
+	/**
+	 * Insert a variable into the heap if it is not already there
+	 * 
+	 * @param variable
+	 *            the variable
+	 */
+
+	public void insert(int variable) {
+
+		if (!contains(variable)) {
+			indices[variable] = heap.size();
+			heap.add(variable);
+			percolateUp(indices[variable]);
+		}
+	}
+
+	/**
+	 * Restore the heap order after the activity of a variable has increased
+	 * 
+	 * @param variable
+	 *            the variable
+	 */
+
+	public void increased(int variable) {
+
+		if (contains(variable)) {
+			percolateUp(indices[variable]);
+		}
+	}
+
+	/**
+	 * Remove and return the variable with the highest activity
+	 * 
+	 * @return the variable
+	 */
+
+	public int removeMax() {
+
+		int max = heap.get(0);
+		int last = heap.pop();
+
+		indices[max] = -1;
+
+		if (!heap.isEmpty()) {
+			heap.set(0, last);
+			indices[last] = 0;
+			percolateDown(0);
+		}
+
+		return max;
+	}
+
+	/**
+	 * Move a variable up the heap until its parent is at least as active
+	 * 
+	 * @param i
+	 *            the position of the variable
+	 */
+
+	private void percolateUp(int i) {
+
+		int variable = heap.get(i);
+
+		while (i > 0) {
+
+			int parent = (i - 1) >> 1;
+
+			if (activity[heap.get(parent)] >= activity[variable]) {
+				break;
+			}
+
+			heap.set(i, heap.get(parent));
+			indices[heap.get(i)] = i;
+			i = parent;
+		}
+
+		heap.set(i, variable);
+		indices[variable] = i;
+	}
+
+	/**
+	 * Move a variable down the heap until its children are at most as active
+	 * 
+	 * @param i
+	 *            the position of the variable
+	 */
+
+	private void percolateDown(int i) {
+
+		int variable = heap.get(i);
+		int size = heap.size();
+
+		while (2 * i + 1 < size) {
+
+			int child = 2 * i + 1;
+
+			if (child + 1 < size && activity[heap.get(child + 1)] > activity[heap.get(child)]) {
+				child++;
+			}
+
+			if (activity[heap.get(child)] <= activity[variable]) {
+				break;
+			}
+
+			heap.set(i, heap.get(child));
+			indices[heap.get(i)] = i;
+			i = child;
+		}
+
+		heap.set(i, variable);
+		indices[variable] = i;
+	}
+
+}
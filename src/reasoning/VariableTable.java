@@ -0,0 +1,241 @@
+package reasoning;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * A table interning atom names to variable indices, used to convert between
+ * LogicExpressions and int literals
+ *
+ * @author George Kaye
+ *
+ */
+
+public class VariableTable {
+
+	private ArrayList<String> names;
+	private HashMap<String, Integer> indices;
+
+	/**
+	 * Create a new (empty) variable table
+	 */
+
+	public VariableTable() {
+		this.names = new ArrayList<>();
+		this.indices = new HashMap<>();
+	}
+
+	/**
+	 * Create a variable table containing all the atoms of a clause normal form
+	 *
+	 * @param cnf
+	 *            the clause normal form
+	 */
+
+	public VariableTable(ClauseNormalForm cnf) {
+
+		this();
+
+		for (HashSet<LogicExpression> clause : cnf.getCNF()) {
+			for (LogicExpression exp : clause) {
+				intern(exp.getName());
+			}
+		}
+	}
+
+	/**
+	 * Make room for a number of variables, so that interning them does not
+	 * have to grow the table
+	 *
+	 * @param capacity
+	 *            the number of variables
+	 */
+
+	public void ensureCapacity(int capacity) {
+
+		if (capacity > names.size()) {
+
+			names.ensureCapacity(capacity);
+
+			HashMap<String, Integer> bigger = new HashMap<>((int) (capacity / 0.75f) + 1);
+			bigger.putAll(indices);
+			indices = bigger;
+		}
+	}
+
+	/**
+	 * Get the variable index of an atom name, creating a new one if the name
+	 * has not been seen before
+	 *
+	 * @param name
+	 *            the name of the atom
+	 * @return the variable index
+	 */
+
+	public int intern(String name) {
+
+		Integer index = indices.get(name);
+
+		if (index == null) {
+			index = names.size();
+			names.add(name);
+			indices.put(name, index);
+		}
+
+		return index;
+	}
+
+	/**
+	 * Get the variable index of an atom name
+	 *
+	 * @param name
+	 *            the name of the atom
+	 * @return the variable index, -1 if the name is not in the table
+	 */
+
+	public int getVariable(String name) {
+
+		Integer index = indices.get(name);
+
+		if (index == null) {
+			return -1;
+		}
+
+		return index;
+	}
+
+	/**
+	 * Get the name of a variable
+	 *
+	 * @param variable
+	 *            the variable index
+	 * @return the name of the atom
+	 */
+
+	public String getName(int variable) {
+		return names.get(variable);
+	}
+
+	/**
+	 * Get the number of variables in this table
+	 *
+	 * @return the number of variables
+	 */
+
+	public int size() {
+		return names.size();
+	}
+
+	/**
+	 * Convert an atom (with any number of negations) to a literal
+	 *
+	 * @param exp
+	 *            the atom
+	 * @return the literal
+	 */
+
+	public int toLiteral(LogicExpression exp) {
+		return Literal.make(intern(exp.getName()), exp.getNegations() % 2 == 1);
+	}
+
+	/**
+	 * Convert a literal back into an atom
+	 *
+	 * @param literal
+	 *            the literal
+	 * @return the atom
+	 */
+
+	public LogicExpression toExpression(int literal) {
+
+		int negations = 0;
+
+		if (Literal.isNegated(literal)) {
+			negations = 1;
+		}
+
+		return ExpressionFactory.atom(getName(Literal.variable(literal)), negations);
+	}
+
+	/**
+	 * Convert a clause of atoms into an array of literals
+	 *
+	 * @param clause
+	 *            the clause
+	 * @return the array of literals
+	 */
+
+	public int[] toLiterals(HashSet<LogicExpression> clause) {
+
+		int[] literals = new int[clause.size()];
+		int i = 0;
+
+		for (LogicExpression exp : clause) {
+			literals[i] = toLiteral(exp);
+			i++;
+		}
+
+		return literals;
+	}
+
+	/**
+	 * Convert an array of literals into a clause of atoms
+	 *
+	 * @param literals
+	 *            the array of literals
+	 * @return the clause
+	 */
+
+	public HashSet<LogicExpression> toClause(int[] literals) {
+
+		HashSet<LogicExpression> clause = new HashSet<>();
+
+		for (int literal : literals) {
+			clause.add(toExpression(literal));
+		}
+
+		return clause;
+	}
+
+	/**
+	 * Convert a clause normal form into arrays of literals
+	 *
+	 * @param cnf
+	 *            the clause normal form
+	 * @return the clauses as arrays of literals
+	 */
+
+	public int[][] toLiterals(ClauseNormalForm cnf) {
+
+		int[][] clauses = new int[cnf.getCNF().size()][];
+		int i = 0;
+
+		for (HashSet<LogicExpression> clause : cnf.getCNF()) {
+			clauses[i] = toLiterals(clause);
+			i++;
+		}
+
+		return clauses;
+	}
+
+	/**
+	 * Convert arrays of literals into a clause normal form
+	 *
+	 * @param clauses
+	 *            the clauses as arrays of literals
+	 * @return the clause normal form
+	 */
+
+	public ClauseNormalForm toClauseNormalForm(int[][] clauses) {
+
+		HashSet<HashSet<LogicExpression>> cnf = new HashSet<>();
+
+		for (int[] clause : clauses) {
+			cnf.add(toClause(clause));
+		}
+
+		return new ClauseNormalForm(cnf);
+	}
+
+}